@@ -0,0 +1,200 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import java.nio.DoubleBuffer;
+
+/**
+ * Generates {@link Trajectory}s along a straight line between two poses. Translation and heading
+ * each follow their own trapezoidal profile, which is the time optimal path under velocity and
+ * acceleration limits, and the trajectory lasts as long as the slower of the two. Translation can
+ * start and end moving along the line, so consecutive paths can be chained without stopping. A
+ * path whose heading takes longer than its translation ends at rest instead, since it can't keep
+ * moving past its end while the heading finishes.
+ */
+public class StraightLineGenerator {
+    public static final double SAMPLE_PERIOD = 0.02;
+
+    private final double maxLinearVelocity;
+    private final double maxLinearAcceleration;
+    private final double maxAngularVelocity;
+    private final double maxAngularAcceleration;
+
+    public StraightLineGenerator(
+            double maxLinearVelocity,
+            double maxLinearAcceleration,
+            double maxAngularVelocity,
+            double maxAngularAcceleration) {
+        this.maxLinearVelocity = maxLinearVelocity;
+        this.maxLinearAcceleration = maxLinearAcceleration;
+        this.maxAngularVelocity = maxAngularVelocity;
+        this.maxAngularAcceleration = maxAngularAcceleration;
+    }
+
+    public double getMaxLinearVelocity() {
+        return maxLinearVelocity;
+    }
+
+    /** @return How long the path generated between the poses would take, without generating it */
+    public double duration(Pose2d start, Pose2d end, double startSpeed, double endSpeed) {
+        double distance = Math.hypot(end.getX() - start.getX(), end.getY() - start.getY());
+        double deltaHeading =
+                MathUtil.angleModulus(
+                        end.getRotation().getRadians() - start.getRotation().getRadians());
+        Profile rotation =
+                new Profile(
+                        Math.abs(deltaHeading), 0, 0, maxAngularVelocity, maxAngularAcceleration);
+        Profile translation = translationProfile(distance, startSpeed, endSpeed, rotation);
+        return Math.max(translation.duration, rotation.duration);
+    }
+
+    private Profile translationProfile(
+            double distance, double startSpeed, double endSpeed, Profile rotation) {
+        Profile translation =
+                new Profile(
+                        distance, startSpeed, endSpeed, maxLinearVelocity, maxLinearAcceleration);
+        if (endSpeed > 0 && rotation.duration > translation.duration) {
+            translation =
+                    new Profile(
+                            distance, startSpeed, 0, maxLinearVelocity, maxLinearAcceleration);
+        }
+        return translation;
+    }
+
+    /** Generates a path that starts and ends at rest. */
+    public Trajectory generate(Pose2d start, Pose2d end) {
+        return generate(start, end, 0, 0);
+    }
+
+    /**
+     * Generates a path that starts and ends moving along the line. The end speed is lowered if it
+     * can't be reached, or raised if the path is too short to slow down to it. It's zero if the
+     * heading takes longer than the translation.
+     */
+    public Trajectory generate(Pose2d start, Pose2d end, double startSpeed, double endSpeed) {
+        double deltaX = end.getX() - start.getX();
+        double deltaY = end.getY() - start.getY();
+        double distance = Math.hypot(deltaX, deltaY);
+        double startHeading = start.getRotation().getRadians();
+        double deltaHeading = MathUtil.angleModulus(end.getRotation().getRadians() - startHeading);
+
+        Profile rotation =
+                new Profile(
+                        Math.abs(deltaHeading), 0, 0, maxAngularVelocity, maxAngularAcceleration);
+        Profile translation = translationProfile(distance, startSpeed, endSpeed, rotation);
+        double totalTime = Math.max(translation.duration, rotation.duration);
+
+        int length = (int) Math.ceil(totalTime / SAMPLE_PERIOD) + 1;
+        DoubleBuffer timestamps = DoubleBuffer.allocate(length);
+        DoubleBuffer x = DoubleBuffer.allocate(length);
+        DoubleBuffer y = DoubleBuffer.allocate(length);
+        DoubleBuffer headings = DoubleBuffer.allocate(length);
+        DoubleBuffer velocityX = DoubleBuffer.allocate(length);
+        DoubleBuffer velocityY = DoubleBuffer.allocate(length);
+        DoubleBuffer angularVelocities = DoubleBuffer.allocate(length);
+
+        double directionX = distance == 0 ? 0 : deltaX / distance;
+        double directionY = distance == 0 ? 0 : deltaY / distance;
+        double rotationDirection = Math.signum(deltaHeading);
+        double[] state = new double[2]; // position, velocity
+
+        for (int a = 0; a < length; a++) {
+            double time = Math.min(a * SAMPLE_PERIOD, totalTime);
+            timestamps.put(a, time);
+
+            translation.sample(time, state);
+            x.put(a, start.getX() + (state[0] * directionX));
+            y.put(a, start.getY() + (state[0] * directionY));
+            velocityX.put(a, state[1] * directionX);
+            velocityY.put(a, state[1] * directionY);
+
+            rotation.sample(time, state);
+            headings.put(a, MathUtil.angleModulus(startHeading + (state[0] * rotationDirection)));
+            angularVelocities.put(a, state[1] * rotationDirection);
+        }
+
+        return new Trajectory(timestamps, x, y, headings, velocityX, velocityY, angularVelocities);
+    }
+
+    /** Accelerate, cruise and decelerate phases of a one dimensional trapezoidal profile. */
+    private static class Profile {
+        private final double distance;
+        private final double startVelocity;
+        private final double endVelocity;
+        private final double peakVelocity;
+        private final double acceleration;
+
+        private final double accelerationTime;
+        private final double accelerationDistance;
+        private final double cruiseTime;
+        private final double cruiseDistance;
+        final double duration;
+
+        Profile(
+                double distance,
+                double startVelocity,
+                double endVelocity,
+                double maxVelocity,
+                double acceleration) {
+            this.distance = distance;
+            this.acceleration = acceleration;
+
+            // The end velocity has to be reachable by accelerating or braking the whole way
+            startVelocity = Math.min(startVelocity, maxVelocity);
+            double startSquared = startVelocity * startVelocity;
+            double fastestEnd = Math.sqrt(startSquared + (2 * acceleration * distance));
+            double slowestEnd =
+                    Math.sqrt(Math.max(startSquared - (2 * acceleration * distance), 0));
+            endVelocity =
+                    MathUtil.clamp(Math.min(endVelocity, maxVelocity), slowestEnd, fastestEnd);
+            this.startVelocity = startVelocity;
+            this.endVelocity = endVelocity;
+
+            peakVelocity =
+                    Math.max(
+                            Math.min(
+                                    maxVelocity,
+                                    Math.sqrt(
+                                            (acceleration * distance)
+                                                    + (startSquared + (endVelocity * endVelocity))
+                                                            / 2)),
+                            Math.max(startVelocity, endVelocity));
+
+            accelerationTime = (peakVelocity - startVelocity) / acceleration;
+            accelerationDistance =
+                    ((peakVelocity * peakVelocity) - startSquared) / (2 * acceleration);
+            double decelerationTime = (peakVelocity - endVelocity) / acceleration;
+            double decelerationDistance =
+                    ((peakVelocity * peakVelocity) - (endVelocity * endVelocity))
+                            / (2 * acceleration);
+            cruiseDistance = Math.max(distance - accelerationDistance - decelerationDistance, 0);
+            cruiseTime = peakVelocity == 0 ? 0 : cruiseDistance / peakVelocity;
+            duration = accelerationTime + cruiseTime + decelerationTime;
+        }
+
+        /** Writes the position and velocity at a time into state. */
+        void sample(double time, double[] state) {
+            if (time >= duration) {
+                state[0] = distance;
+                state[1] = endVelocity;
+            } else if (time < accelerationTime) {
+                state[0] = (startVelocity * time) + (0.5 * acceleration * time * time);
+                state[1] = startVelocity + (acceleration * time);
+            } else if (time < accelerationTime + cruiseTime) {
+                state[0] = accelerationDistance + (peakVelocity * (time - accelerationTime));
+                state[1] = peakVelocity;
+            } else {
+                double decelerating = time - accelerationTime - cruiseTime;
+                state[0] =
+                        accelerationDistance
+                                + cruiseDistance
+                                + (peakVelocity * decelerating)
+                                - (0.5 * acceleration * decelerating * decelerating);
+                state[1] = peakVelocity - (acceleration * decelerating);
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.trajectory;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * Holonomic trajectory stored as columns of primitive samples, usually read straight out of a
+ * memory mapped file by {@link TrajectoryLoader}. Reading a sample never allocates. A flipped view
+ * mirrors the trajectory across the field's center line for the red alliance without copying it.
+ */
+public class Trajectory {
+    private final DoubleBuffer timestamps;
+    private final DoubleBuffer x;
+    private final DoubleBuffer y;
+    private final DoubleBuffer headings;
+    private final DoubleBuffer velocityX;
+    private final DoubleBuffer velocityY;
+    private final DoubleBuffer angularVelocities;
+    private final int length;
+
+    private final boolean flipped;
+    private final double fieldLengthMeters;
+
+    public Trajectory(
+            DoubleBuffer timestamps,
+            DoubleBuffer x,
+            DoubleBuffer y,
+            DoubleBuffer headings,
+            DoubleBuffer velocityX,
+            DoubleBuffer velocityY,
+            DoubleBuffer angularVelocities) {
+        this(timestamps, x, y, headings, velocityX, velocityY, angularVelocities, false, 0);
+    }
+
+    private Trajectory(
+            DoubleBuffer timestamps,
+            DoubleBuffer x,
+            DoubleBuffer y,
+            DoubleBuffer headings,
+            DoubleBuffer velocityX,
+            DoubleBuffer velocityY,
+            DoubleBuffer angularVelocities,
+            boolean flipped,
+            double fieldLengthMeters) {
+        this.timestamps = timestamps;
+        this.x = x;
+        this.y = y;
+        this.headings = headings;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.angularVelocities = angularVelocities;
+        this.length = timestamps.limit();
+        this.flipped = flipped;
+        this.fieldLengthMeters = fieldLengthMeters;
+    }
+
+    /** Mirrors the trajectory across the center line of a field of the given length. */
+    public Trajectory flipped(double fieldLengthMeters) {
+        return new Trajectory(
+                timestamps,
+                x,
+                y,
+                headings,
+                velocityX,
+                velocityY,
+                angularVelocities,
+                !flipped,
+                fieldLengthMeters);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public double getTotalTime() {
+        return length == 0 ? 0 : timestamps.get(length - 1);
+    }
+
+    public double getTimestamp(int index) {
+        return timestamps.get(index);
+    }
+
+    public double getX(int index) {
+        return flipped ? fieldLengthMeters - x.get(index) : x.get(index);
+    }
+
+    public double getY(int index) {
+        return y.get(index);
+    }
+
+    public double getHeading(int index) {
+        return flipped ? Math.PI - headings.get(index) : headings.get(index);
+    }
+
+    public double getVelocityX(int index) {
+        return flipped ? -velocityX.get(index) : velocityX.get(index);
+    }
+
+    public double getVelocityY(int index) {
+        return velocityY.get(index);
+    }
+
+    public double getAngularVelocity(int index) {
+        return flipped ? -angularVelocities.get(index) : angularVelocities.get(index);
+    }
+}
@@ -0,0 +1,88 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.trajectory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memory maps the trajectories written by the compileTrajectories Gradle task. Each file is little
+ * endian:
+ *
+ * <pre>
+ * int32   magic, "KTRJ"
+ * int32   format version
+ * int32   sample count (n)
+ * int32   padding, keeps the columns 8 byte aligned
+ * float64[n] timestamps, then x, y, heading, velocity x, velocity y and angular velocity
+ * </pre>
+ */
+public class TrajectoryLoader {
+    public static final String EXTENSION = ".btraj";
+
+    private static final int MAGIC = 0x4B54524A;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int COLUMNS = 7;
+
+    /** Maps every compiled trajectory in a directory, keyed by name without the extension. */
+    public static Map<String, Trajectory> loadAll(File directory) {
+        Map<String, Trajectory> trajectories = new HashMap<>();
+
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            System.err.println("ERROR: Could not find compiled trajectories in " + directory);
+            return trajectories;
+        }
+
+        for (File file : files) {
+            try {
+                trajectories.put(
+                        file.getName().substring(0, file.getName().length() - EXTENSION.length()),
+                        load(file));
+            } catch (IOException e) {
+                System.err.println("ERROR: Could not load trajectory " + file.getName());
+            }
+        }
+        return trajectories;
+    }
+
+    public static Trajectory load(File file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel closes
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.limit() < HEADER_BYTES
+                || buffer.getInt(0) != MAGIC
+                || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a compiled trajectory: " + file.getName());
+        }
+
+        int length = buffer.getInt(8);
+        if (length < 0 || buffer.limit() < HEADER_BYTES + (length * COLUMNS * Double.BYTES)) {
+            throw new IOException("Truncated trajectory: " + file.getName());
+        }
+
+        DoubleBuffer[] columns = new DoubleBuffer[COLUMNS];
+        for (int a = 0; a < COLUMNS; a++) {
+            columns[a] =
+                    buffer.slice(HEADER_BYTES + (a * length * Double.BYTES), length * Double.BYTES)
+                            .order(ByteOrder.LITTLE_ENDIAN)
+                            .asDoubleBuffer();
+        }
+
+        return new Trajectory(
+                columns[0], columns[1], columns[2], columns[3], columns[4], columns[5], columns[6]);
+    }
+}
@@ -0,0 +1,90 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.trajectory;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Samples a {@link Trajectory} at arbitrary times by binary searching its timestamps and
+ * interpolating between the surrounding samples. The result is written into this object's public
+ * fields, so sampling doesn't allocate.
+ */
+public class TrajectorySampler {
+    private final Trajectory trajectory;
+
+    public double x;
+    public double y;
+    public double heading;
+    public double velocityX;
+    public double velocityY;
+    public double angularVelocity;
+
+    public TrajectorySampler(Trajectory trajectory) {
+        this.trajectory = trajectory;
+    }
+
+    /** Samples the trajectory, clamping to its first and last samples outside of its duration. */
+    public void sample(double time) {
+        int length = trajectory.length();
+        if (length == 0) {
+            return;
+        }
+        if (time <= trajectory.getTimestamp(0)) {
+            copy(0);
+            return;
+        }
+        if (time >= trajectory.getTimestamp(length - 1)) {
+            copy(length - 1);
+            return;
+        }
+
+        // Find the last sample at or before the time
+        int low = 0;
+        int high = length - 1;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (trajectory.getTimestamp(middle) <= time) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+
+        double t =
+                (time - trajectory.getTimestamp(low))
+                        / (trajectory.getTimestamp(high) - trajectory.getTimestamp(low));
+
+        x = MathUtil.interpolate(trajectory.getX(low), trajectory.getX(high), t);
+        y = MathUtil.interpolate(trajectory.getY(low), trajectory.getY(high), t);
+        heading =
+                MathUtil.angleModulus(
+                        trajectory.getHeading(low)
+                                + MathUtil.angleModulus(
+                                                trajectory.getHeading(high)
+                                                        - trajectory.getHeading(low))
+                                        * t);
+        velocityX =
+                MathUtil.interpolate(
+                        trajectory.getVelocityX(low), trajectory.getVelocityX(high), t);
+        velocityY =
+                MathUtil.interpolate(
+                        trajectory.getVelocityY(low), trajectory.getVelocityY(high), t);
+        angularVelocity =
+                MathUtil.interpolate(
+                        trajectory.getAngularVelocity(low), trajectory.getAngularVelocity(high), t);
+    }
+
+    private void copy(int index) {
+        x = trajectory.getX(index);
+        y = trajectory.getY(index);
+        heading = MathUtil.angleModulus(trajectory.getHeading(index));
+        velocityX = trajectory.getVelocityX(index);
+        velocityY = trajectory.getVelocityY(index);
+        angularVelocity = trajectory.getAngularVelocity(index);
+    }
+
+    public Trajectory getTrajectory() {
+        return trajectory;
+    }
+}
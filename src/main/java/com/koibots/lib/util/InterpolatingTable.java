@@ -0,0 +1,102 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.util;
+
+import edu.wpi.first.math.MathUtil;
+import java.util.Arrays;
+
+/**
+ * Table of measured values at sorted keys, linearly interpolated between rows. Stored as primitive
+ * arrays and binary searched, so lookups don't allocate. Keys outside the table clamp to the first
+ * or last row.
+ */
+public class InterpolatingTable {
+    private final double[] keys;
+    private final double[][] columns;
+
+    /**
+     * @param keys Strictly increasing
+     * @param columns One value per key in each column
+     */
+    public InterpolatingTable(double[] keys, double[]... columns) {
+        if (keys.length == 0) {
+            throw new IllegalArgumentException("Table needs at least one row");
+        }
+        for (int a = 1; a < keys.length; a++) {
+            if (keys[a] <= keys[a - 1]) {
+                throw new IllegalArgumentException("Table keys must be strictly increasing");
+            }
+        }
+        for (double[] column : columns) {
+            if (column.length != keys.length) {
+                throw new IllegalArgumentException("Every table column needs one value per key");
+            }
+        }
+
+        this.keys = Arrays.copyOf(keys, keys.length);
+        this.columns = new double[columns.length][];
+        for (int a = 0; a < columns.length; a++) {
+            this.columns[a] = Arrays.copyOf(columns[a], columns[a].length);
+        }
+    }
+
+    public double getMinKey() {
+        return keys[0];
+    }
+
+    public double getMaxKey() {
+        return keys[keys.length - 1];
+    }
+
+    public double get(double key, int column) {
+        int low = lowerIndex(key);
+        if (low == keys.length - 1) {
+            return columns[column][low];
+        }
+        return MathUtil.interpolate(
+                columns[column][low], columns[column][low + 1], fraction(key, low));
+    }
+
+    /** Interpolates every column at once, writing them into out in order. */
+    public void get(double key, double[] out) {
+        int low = lowerIndex(key);
+        if (low == keys.length - 1) {
+            for (int a = 0; a < columns.length; a++) {
+                out[a] = columns[a][low];
+            }
+            return;
+        }
+
+        double t = fraction(key, low);
+        for (int a = 0; a < columns.length; a++) {
+            out[a] = MathUtil.interpolate(columns[a][low], columns[a][low + 1], t);
+        }
+    }
+
+    /** @return The last row at or below the key, or the first row if the key is below the table */
+    private int lowerIndex(double key) {
+        if (key <= keys[0]) {
+            return 0;
+        }
+        if (key >= keys[keys.length - 1]) {
+            return keys.length - 1;
+        }
+
+        int low = 0;
+        int high = keys.length - 1;
+        while (high - low > 1) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= key) {
+                low = middle;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private double fraction(double key, int low) {
+        return (key - keys[low]) / (keys[low + 1] - keys[low]);
+    }
+}
@@ -0,0 +1,142 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.util;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.WrapperCommand;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Times phases of the robot loop with {@link System#nanoTime()} and publishes the p50, p95 and max
+ * of each phase over a rolling window. Recording only writes into preallocated arrays, so it
+ * doesn't add garbage to the loops it is measuring.
+ */
+public class LoopProfiler {
+    private static final int WINDOW_SIZE = 250; // 5 seconds of loops
+    private static final int PUBLISH_PERIOD_LOOPS = 50; // Publish once a second
+    // Commands past this many names share one phase, so the phases can't grow without bound
+    private static final int MAX_COMMAND_PHASES = 64;
+
+    private static final List<Phase> phases = new ArrayList<>();
+    private static final Map<String, Phase> commandPhases = new HashMap<>();
+    private static Phase otherCommands = null;
+    private static final long[] sortBuffer = new long[WINDOW_SIZE];
+
+    private static int loopsSincePublish = 0;
+
+    /** Creates a new phase. Call once at startup and keep the result. */
+    public static Phase register(String name) {
+        Phase phase = new Phase(name);
+        phases.add(phase);
+        return phase;
+    }
+
+    /**
+     * Wraps a command so each of its execute() calls is timed on its own. The scheduler only has a
+     * hook for after execute(), so commands have to be wrapped to be timed, and ones that aren't
+     * only show up in the CommandScheduler phase.
+     *
+     * <p>Commands are grouped by name, so every instance of a command shares a phase.
+     */
+    public static Command profile(Command command) {
+        return new ProfiledCommand(command, registerCommand(command.getName()));
+    }
+
+    /** Gets the phase for commands with the given name, creating it if it doesn't exist yet. */
+    private static Phase registerCommand(String name) {
+        Phase phase = commandPhases.get(name);
+        if (phase != null) {
+            return phase;
+        }
+
+        if (commandPhases.size() >= MAX_COMMAND_PHASES) {
+            if (otherCommands == null) {
+                otherCommands = register("Commands/Other");
+            }
+            return otherCommands;
+        }
+
+        phase = register("Commands/" + name);
+        commandPhases.put(name, phase);
+        return phase;
+    }
+
+    /** Publishes the statistics of every phase at a low rate. Call once per loop. */
+    public static void periodic() {
+        loopsSincePublish++;
+        if (loopsSincePublish < PUBLISH_PERIOD_LOOPS) {
+            return;
+        }
+        loopsSincePublish = 0;
+
+        for (int a = 0; a < phases.size(); a++) {
+            phases.get(a).publish();
+        }
+    }
+
+    public static class Phase {
+        private final String p50Key;
+        private final String p95Key;
+        private final String maxKey;
+
+        private final long[] samples = new long[WINDOW_SIZE];
+        private int nextSample = 0;
+        private int sampleCount = 0;
+        private long startNanos = 0;
+
+        private Phase(String name) {
+            p50Key = "Profiler/" + name + "/P50Ms";
+            p95Key = "Profiler/" + name + "/P95Ms";
+            maxKey = "Profiler/" + name + "/MaxMs";
+        }
+
+        public void start() {
+            startNanos = System.nanoTime();
+        }
+
+        public void stop() {
+            record(System.nanoTime() - startNanos);
+        }
+
+        public void record(long nanos) {
+            samples[nextSample] = nanos;
+            nextSample = (nextSample + 1) % WINDOW_SIZE;
+            sampleCount = Math.min(sampleCount + 1, WINDOW_SIZE);
+        }
+
+        private void publish() {
+            if (sampleCount == 0) {
+                return;
+            }
+
+            System.arraycopy(samples, 0, sortBuffer, 0, sampleCount);
+            Arrays.sort(sortBuffer, 0, sampleCount);
+
+            Logger.recordOutput(p50Key, sortBuffer[sampleCount / 2] / 1e6);
+            Logger.recordOutput(p95Key, sortBuffer[(int) ((sampleCount - 1) * 0.95)] / 1e6);
+            Logger.recordOutput(maxKey, sortBuffer[sampleCount - 1] / 1e6);
+        }
+    }
+
+    private static class ProfiledCommand extends WrapperCommand {
+        private final Phase phase;
+
+        private ProfiledCommand(Command command, Phase phase) {
+            super(command);
+            this.phase = phase;
+        }
+
+        @Override
+        public void execute() {
+            phase.start();
+            m_command.execute();
+            phase.stop();
+        }
+    }
+}
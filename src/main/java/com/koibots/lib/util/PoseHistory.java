@@ -0,0 +1,87 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.util;
+
+import edu.wpi.first.math.MathUtil;
+
+/**
+ * Ring buffer of timestamped poses, linearly interpolated between samples. Stored as primitive
+ * arrays, so adding and sampling don't allocate. Once full, the oldest sample is overwritten.
+ */
+public class PoseHistory {
+    private final double[] timestamps;
+    private final double[] x;
+    private final double[] y;
+    private final double[] theta;
+
+    private int newest = -1;
+    private int size = 0;
+
+    public PoseHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History needs room for at least one pose");
+        }
+        timestamps = new double[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        theta = new double[capacity];
+    }
+
+    /** Adds a pose. Samples that aren't newer than the newest one are ignored. */
+    public void add(double timestamp, double poseX, double poseY, double poseTheta) {
+        if (size > 0 && timestamp <= timestamps[newest]) {
+            return;
+        }
+
+        newest = (newest + 1) % timestamps.length;
+        size = Math.min(size + 1, timestamps.length);
+        timestamps[newest] = timestamp;
+        x[newest] = poseX;
+        y[newest] = poseY;
+        theta[newest] = poseTheta;
+    }
+
+    public void clear() {
+        newest = -1;
+        size = 0;
+    }
+
+    /**
+     * Finds the pose at a time into poseOut as x, y, theta. Times after the newest sample get the
+     * newest pose.
+     *
+     * @return False if the time is older than the history goes back, leaving poseOut unchanged
+     */
+    public boolean sample(double timestamp, double[] poseOut) {
+        if (size == 0) {
+            return false;
+        }
+
+        // Measurements are usually recent, so search back from the newest sample
+        int later = newest;
+        for (int a = 0; a < size; a++) {
+            int index = Math.floorMod(newest - a, timestamps.length);
+            if (timestamps[index] <= timestamp) {
+                if (index == later) {
+                    poseOut[0] = x[index];
+                    poseOut[1] = y[index];
+                    poseOut[2] = theta[index];
+                } else {
+                    double fraction =
+                            (timestamp - timestamps[index])
+                                    / (timestamps[later] - timestamps[index]);
+                    poseOut[0] = MathUtil.interpolate(x[index], x[later], fraction);
+                    poseOut[1] = MathUtil.interpolate(y[index], y[later], fraction);
+                    poseOut[2] =
+                            theta[index]
+                                    + (MathUtil.angleModulus(theta[later] - theta[index])
+                                            * fraction);
+                }
+                return true;
+            }
+            later = index;
+        }
+        return false;
+    }
+}
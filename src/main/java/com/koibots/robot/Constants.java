@@ -62,6 +62,17 @@ public class Constants {
         public static final int DRIVE_ENCODER_SAMPLING_DEPTH = 2;
 
         public static final double SHOOTER_ALLOWED_ERROR = 0.1;
+        // How long the shooter has to stay at its setpoint before a note is fed
+        public static final Measure<Time> SHOOTER_SETPOINT_DEBOUNCE = Milliseconds.of(60);
+
+        // A note going through the flywheels slows them down and spikes their current, measured
+        // from the speed and current when feeding started
+        public static final double SHOT_DETECTION_SPEED_DIP = 0.05; // Fraction of the speed
+        public static final Measure<Current> SHOT_DETECTION_CURRENT_RISE = Amps.of(20);
+        // Gives up without feeding if the shooter never gets to speed
+        public static final Measure<Time> SHOOTER_SPIN_UP_TIMEOUT = Seconds.of(2);
+        // Gives up on seeing the shot after feeding, in case the note is stuck or a sensor is out
+        public static final Measure<Time> SHOT_TIMEOUT = Seconds.of(0.5);
     }
 
     public static class MotorConstants {
@@ -99,26 +110,37 @@ public class Constants {
         public static final FeedforwardConstantsIO DRIVE_FEEDFORWARD_CONSTANTS =
                 new FeedforwardConstantsIO(0.11386, 2.6819, 0.16507, 0, 2.65, 0);
 
+        // Runs the module PID loops on the SparkMaxes at 1khz instead of on the RIO at 50hz. Off
+        // until the onboard gains are tuned on the robot
+        public static final boolean ONBOARD_MODULE_CONTROL = false;
+
         public static final double DEADBAND = 0.025;
 
+        public static final Measure<Time> ODOMETRY_PERIOD = Milliseconds.of(4); // 250hz
+        public static final int ODOMETRY_BUFFER_SIZE = 25; // 100ms of samples
+        // Estimated poses kept for gating vision, longer than VisionConstants.MAX_FRAME_AGE
+        public static final int POSE_HISTORY_SIZE = 125; // 500ms of samples
+
         public static final PIDConstantsIO ANGLE_ALIGNMENT_PID_CONSTANTS =
                 new PIDConstantsIO(0.925, 0, 0, 3.5, 0, 0);
 
+        public static final Translation2d[] MODULE_LOCATIONS = {
+            new Translation2d(
+                    RobotConstants.ROBOT_LENGTH.divide(2),
+                    RobotConstants.ROBOT_WIDTH.divide(2)), // Front Left
+            new Translation2d(
+                    RobotConstants.ROBOT_LENGTH.divide(2),
+                    RobotConstants.ROBOT_WIDTH.divide(-2)), // Front Right
+            new Translation2d(
+                    RobotConstants.ROBOT_LENGTH.divide(-2),
+                    RobotConstants.ROBOT_WIDTH.divide(2)), // Back Left
+            new Translation2d(
+                    RobotConstants.ROBOT_LENGTH.divide(-2),
+                    RobotConstants.ROBOT_WIDTH.divide(-2)) // Back Right
+        };
+
         public static final SwerveDriveKinematics SWERVE_KINEMATICS =
-                new SwerveDriveKinematics(
-                        new Translation2d(
-                                RobotConstants.ROBOT_LENGTH.divide(2),
-                                RobotConstants.ROBOT_WIDTH.divide(2)), // Front Left
-                        new Translation2d(
-                                RobotConstants.ROBOT_LENGTH.divide(2),
-                                RobotConstants.ROBOT_WIDTH.divide(-2)), // Front Right
-                        new Translation2d(
-                                RobotConstants.ROBOT_LENGTH.divide(-2),
-                                RobotConstants.ROBOT_WIDTH.divide(2)), // Back Left
-                        new Translation2d(
-                                RobotConstants.ROBOT_LENGTH.divide(-2),
-                                RobotConstants.ROBOT_WIDTH.divide(-2)) // Back Right
-                        );
+                new SwerveDriveKinematics(MODULE_LOCATIONS);
 
         // =====================Shooter=====================
 
@@ -175,7 +197,30 @@ public class Constants {
                                 REPLANNING_ERROR_THRESHOLD.in(Meters),
                                 REPLANNING_ERROR_SPIKE_THRESHOLD.in(Meters)));
 
-        public static final Measure<Distance> ALLOWED_AUTO_ERROR = Inches.of(10);
+        // =====================Drive To Pose=====================
+
+        public static final PIDConstantsIO DRIVE_TO_POSE_TRANSLATION_PID =
+                new PIDConstantsIO(2.5, 0, 0, 2.5, 0, 0);
+        public static final PIDConstantsIO DRIVE_TO_POSE_ROTATION_PID =
+                new PIDConstantsIO(3, 0, 0, 3, 0, 0);
+
+        public static final Measure<Distance> ALLOWED_AUTO_ERROR = Inches.of(2);
+        public static final Measure<Angle> ALLOWED_AUTO_HEADING_ERROR = Degrees.of(2);
+        public static final Measure<Velocity<Distance>> AUTO_SETTLE_SPEED = MetersPerSecond.of(0.1);
+        public static final Measure<Time> AUTO_SETTLE_TIME = Seconds.of(0.1);
+
+        // =====================Shooting=====================
+
+        // From the indexer starting to feed to the note leaving the flywheels
+        public static final Measure<Time> SHOT_RELEASE_LATENCY = Seconds.of(0.1);
+        public static final Measure<Angle> ALLOWED_SHOT_HEADING_ERROR = Degrees.of(3);
+        public static final Measure<Velocity<Distance>> MAX_SHOOT_ON_THE_MOVE_SPEED =
+                MetersPerSecond.of(2);
+
+        // How fast the flywheels speed up, for starting them early enough to be ready on arrival
+        public static final Measure<Velocity<Velocity<Angle>>> SHOOTER_SPIN_UP_RATE =
+                RPM.of(5000).per(Second);
+        public static final Measure<Time> SHOOTER_PRE_SPIN_MARGIN = Seconds.of(0.2);
     }
 
     public static final class SetpointConstants {
@@ -190,7 +235,8 @@ public class Constants {
             AMP(Arrays.asList(RPM.of(500), RPM.of(2000))),
             INTAKE(Arrays.asList(RPM.of(-800), RPM.of(-602))),
             REVERSE(Arrays.asList(RPM.of(-400), RPM.of(-400))),
-            IDLE(Arrays.asList(RPM.of(500), RPM.of(500)));
+            // Held between shots instead of stopping, so the next spin up starts partway there
+            IDLE(Arrays.asList(RPM.of(1500), RPM.of(1500)));
 
             public final Measure<Velocity<Angle>> topSpeed;
             public final Measure<Velocity<Angle>> bottomSpeed;
@@ -200,6 +246,23 @@ public class Constants {
                 this.bottomSpeed = speeds.get(1);
             }
         }
+
+        // Speaker shots by distance from the speaker opening to the robot center, in meters and
+        // RPM. Only the first MEASURED_SHOT_ROWS rows are tested. The rest are estimates, and are
+        // left out of the table unless USE_ESTIMATED_SHOT_ROWS is on to calibrate them.
+        public static final int MEASURED_SHOT_ROWS = 1;
+        public static final boolean USE_ESTIMATED_SHOT_ROWS = false;
+        public static final double[] SHOT_TABLE_DISTANCES = {1.37, 2.0, 2.5, 3.0, 3.5, 4.0, 4.5};
+        public static final double[] SHOT_TABLE_TOP_SPEEDS = {
+            3850, 4100, 4300, 4500, 4700, 4900, 5100
+        };
+        public static final double[] SHOT_TABLE_BOTTOM_SPEEDS = {
+            3850, 4100, 4300, 4500, 4700, 4900, 5100
+        };
+        // Seconds from leaving the shooter to reaching the speaker
+        public static final double[] SHOT_TABLE_FLIGHT_TIMES = {
+            0.14, 0.19, 0.23, 0.27, 0.31, 0.35, 0.39
+        };
     }
 
     public static final class RobotConstants {
@@ -230,11 +293,8 @@ public class Constants {
 
         public static final Translation2d ALLOWED_DISTANCE_FROM_AMP = new Translation2d(2, 2);
 
-        public static final List<Measure<Distance>> SHOOT_DISTANCES_METERS =
-                Arrays.asList(Meters.of(4.5));
-        public static final Pose2d SPEAKER_POSITION = new Pose2d();
-
-        public static final Translation2d ALLOWED_DISTANCE_FROM_SHOOT = new Translation2d(2, 2);
+        // Center of the speaker opening, alliance relative
+        public static final Pose2d SPEAKER_POSITION = new Pose2d(0, 5.548, new Rotation2d());
 
         public static final Translation2d ALLOWED_DISTANCE_FROM_NOTE = new Translation2d(2, 2);
     }
@@ -247,16 +307,31 @@ public class Constants {
             new Pose2d(0, 0, new Rotation2d(Math.toRadians(270))),
         }; // x is left, y is forward, counterclockwise on rotation
 
-        public static final String[][] TOPIC_NAMES = {
-            {"Cam1Tvec", "Cam1Rvec", "Cam1Ids"},
-            {"Cam2Tvec", "Cam2Rvec", "Cam2Ids"},
-            {"Cam3Tvec", "Cam3Rvec", "Cam3Ids"},
-            {"Cam4Tvec", "Cam4Rvec", "Cam4Ids"}
+        // Packed frames, see VisionFrame for the layout
+        public static final String[] FRAME_TOPIC_NAMES = {
+            "Cam1Frame", "Cam2Frame", "Cam3Frame", "Cam4Frame"
         };
-        public static final double[] VECTOR_DEFAULT_VALUE = {0, 0, 0};
-        public static final int ID_DEFAULT_VALUE = 0;
-
-        public static final Measure<Distance> MAX_MEASUREMENT_DIFFERENCE = Meters.of(1);
+        public static final int FRAME_QUEUE_DEPTH = 8;
+        public static final int MAX_TAGS_PER_FRAME = 16;
+        public static final Measure<Time> MAX_FRAME_AGE = Milliseconds.of(300);
+
+        public static final Measure<Time> VISION_PERIOD = Milliseconds.of(10); // 100hz
+        public static final int MEASUREMENT_QUEUE_SIZE = 32;
+        public static final int MAX_MEASUREMENTS_PER_CYCLE = 4; // After fusing
+        public static final Measure<Time> FUSION_WINDOW = Milliseconds.of(2);
+
+        // Std devs scale with distance squared, and by ambiguity and single tag penalties
+        public static final double XY_STD_DEV_COEFFICIENT = 0.02;
+        public static final double THETA_STD_DEV_COEFFICIENT = 0.06;
+        public static final double SINGLE_TAG_STD_DEV_MULTIPLIER = 2.0;
+        public static final double AMBIGUITY_STD_DEV_SCALE = 5.0;
+        public static final double MAX_SINGLE_TAG_AMBIGUITY = 0.2;
+
+        // Stand in for the pose estimator's covariance, which it doesn't expose, grown by the
+        // distance driven since the last correction
+        public static final double[] ODOMETRY_STD_DEVS = {0.1, 0.1, 0.1}; // x, y, theta
+        public static final double ODOMETRY_DRIFT_PER_METER = 0.05;
+        public static final double MAHALANOBIS_THRESHOLD = 11.34; // Chi squared, 3 dof, 99%
     }
 
     public static class AutoConstants {
@@ -284,5 +359,21 @@ public class Constants {
         public static final Measure<Distance> REPLANNING_THRESHOLD = Inches.of(6);
 
         public static final boolean IS_RED = false;
+
+        public static final Measure<Distance> FIELD_LENGTH = Meters.of(16.541);
+
+        public static final Pose2d AMP_POSITION =
+                new Pose2d(1.8415, 7.7724, new Rotation2d(-PI / 2));
+
+        // Library paths stay under this fraction of the drive's limits to leave room for correction
+        public static final double PATH_CONSTRAINT_SCALE = 0.8;
+        public static final Measure<Distance> WAYPOINT_TOLERANCE = Meters.of(0.5);
+        // How much the velocity can jump where two chained paths meet at an angle
+        public static final Measure<Velocity<Distance>> MAX_HANDOFF_VELOCITY_CHANGE =
+                MetersPerSecond.of(1);
+
+        // Route optimizer costs, on top of the path times
+        public static final Measure<Time> AUTO_DURATION = Seconds.of(15);
+        public static final Measure<Time> SHOOT_DURATION = Seconds.of(0.5);
     }
 }
@@ -5,11 +5,15 @@ package com.koibots.robot;
 
 import static com.koibots.robot.subsystems.Subsystems.*;
 
+import com.koibots.lib.util.LoopProfiler;
+import com.koibots.robot.autos.PathLibrary;
+import com.koibots.robot.autos.Trajectories;
 import edu.wpi.first.cameraserver.CameraServer;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.PowerDistribution;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +26,13 @@ import org.littletonrobotics.junction.wpilog.WPILOGWriter;
 public class Robot extends LoggedRobot {
     private RobotContainer robotContainer;
 
+    private final LoopProfiler.Phase schedulerProfile = LoopProfiler.register("CommandScheduler");
+    private final LoopProfiler.Phase loopProfile = LoopProfiler.register("LoopPeriod");
+    private long lastLoopStartNanos = 0;
+    // A command can only be wrapped once, so the wrapper is kept for as long as the auto is
+    private Command lastAutonomousRoutine = null;
+    private Command profiledAutonomousRoutine = null;
+
     List<SendableChooser<Boolean>> modulesEnabled = new ArrayList<SendableChooser<Boolean>>();
 
     @Override
@@ -42,7 +53,11 @@ public class Robot extends LoggedRobot {
 
         Logger.start();
 
+        Trajectories.load();
+
         robotContainer = new RobotContainer();
+        // After RobotContainer, which rearranges the auto positions for the red alliance
+        PathLibrary.generate();
         robotContainer.registerAutos();
 
         SmartDashboard.putData(Intake.get());
@@ -55,13 +70,29 @@ public class Robot extends LoggedRobot {
 
     @Override
     public void robotPeriodic() {
+        // Time between loop starts, which also covers the AdvantageKit logging around user code
+        long loopStartNanos = System.nanoTime();
+        if (lastLoopStartNanos != 0) {
+            loopProfile.record(loopStartNanos - lastLoopStartNanos);
+        }
+        lastLoopStartNanos = loopStartNanos;
+
+        schedulerProfile.start();
         CommandScheduler.getInstance().run();
+        schedulerProfile.stop();
+
+        LoopProfiler.periodic();
     }
 
     @Override
     public void autonomousInit() {
-        if (robotContainer.getAutonomousRoutine() != null) {
-            robotContainer.getAutonomousRoutine().schedule();
+        Command autonomousRoutine = robotContainer.getAutonomousRoutine();
+        if (autonomousRoutine != null) {
+            if (autonomousRoutine != lastAutonomousRoutine) {
+                lastAutonomousRoutine = autonomousRoutine;
+                profiledAutonomousRoutine = LoopProfiler.profile(autonomousRoutine);
+            }
+            profiledAutonomousRoutine.schedule();
         }
         LEDs.get().send_to_rp2040(4);
     }
@@ -81,7 +112,9 @@ public class Robot extends LoggedRobot {
     }
 
     @Override
-    public void disabledPeriodic() {}
+    public void disabledPeriodic() {
+        robotContainer.prebuildAutonomousRoutine();
+    }
 
     @Override
     public void testInit() {
@@ -7,17 +7,28 @@ import static com.koibots.robot.subsystems.Subsystems.*;
 import static edu.wpi.first.units.Units.*;
 
 import com.koibots.lib.controls.EightBitDo;
+import com.koibots.lib.util.LoopProfiler;
 import com.koibots.robot.Constants.*;
+import com.koibots.robot.autos.AutoCompiler;
+import com.koibots.robot.autos.AutoPrebuilder;
+import com.koibots.robot.autos.AutoRegistry;
 import com.koibots.robot.autos.JankAutos;
+import com.koibots.robot.autos.RouteOptimizer;
+import com.koibots.robot.autos.Waypoint;
 import com.koibots.robot.commands.Intake.IntakeCommand;
 import com.koibots.robot.commands.Intake.IntakeShooter;
 import com.koibots.robot.commands.Scoring.FeedNote;
+import com.koibots.robot.commands.Scoring.RapidFire;
+import com.koibots.robot.commands.Scoring.ShootOnTheMove;
+import com.koibots.robot.commands.Shooter.IdleShooter;
 import com.koibots.robot.commands.Shooter.SpinUpShooter;
+import com.koibots.robot.commands.Shooter.TrackSpeaker;
 import com.koibots.robot.commands.Swerve.FieldOrientedDrive;
 import com.koibots.robot.commands.Swerve.TestDrive;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.GenericHID;
 import edu.wpi.first.wpilibj.GenericHID.RumbleType;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
@@ -28,20 +39,28 @@ import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
 import edu.wpi.first.wpilibj2.command.ParallelRaceGroup;
 import edu.wpi.first.wpilibj2.command.StartEndCommand;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class RobotContainer {
+    static final String TEXT_ROUTINE_KEY = "Auto Routine";
+
     static EightBitDo driveController = new EightBitDo(0);
     static GenericHID operatorPad = new GenericHID(1);
 
     List<SendableChooser<Boolean>> modulesEnabled = new ArrayList<>();
 
     SendableChooser<Pose2d> startingPosition = new SendableChooser<>();
-    SendableChooser<Command> autos = new SendableChooser<>();
+    AutoRegistry autos = new AutoRegistry();
+    AutoCompiler autoCompiler = new AutoCompiler();
+    // Made on the prebuilder's thread when a fastest auto is first picked
+    RouteOptimizer routeOptimizer = null;
+    Map<Waypoint, CompletableFuture<String>> fastestRoutines = new EnumMap<>(Waypoint.class);
+    AutoPrebuilder autoPrebuilder = new AutoPrebuilder(autos, startingPosition);
 
     public RobotContainer() {
 
@@ -81,20 +100,56 @@ public class RobotContainer {
 
         SmartDashboard.putData("Starting Pos", startingPosition);
 
-        Method[] autoOptions = jankAutos.getClass().getDeclaredMethods();
-        autos.setDefaultOption("Nothing", new InstantCommand());
-        for (Method autoOption : autoOptions) {
-            try {
-                autos.addOption(autoOption.getName(), (Command) autoOption.invoke(jankAutos));
-            } catch (IllegalAccessException e) {
-                e.printStackTrace();
-            } catch (IllegalArgumentException e) {
-                System.out.println(" >> " + autoOption.getName());
-            } catch (InvocationTargetException e) {
-                e.printStackTrace();
+        // Only the names are registered here, each auto is built when it's picked
+        autos.registerAll(jankAutos);
+        for (String textAuto :
+                AutoCompiler.readAutos(
+                        Filesystem.getDeployDirectory().toPath().resolve("autos.txt"))) {
+            autos.register(textAuto, () -> autoCompiler.compile(textAuto));
+        }
+        // Built from the best route the optimizer finds, which is ranked off the main thread
+        for (String start : AutoConstants.STARTING_POSITIONS.keySet()) {
+            Waypoint waypoint = Waypoint.nearest(AutoConstants.STARTING_POSITIONS.get(start));
+            if (waypoint != null) {
+                autos.registerText(
+                        "Fastest - " + start,
+                        () -> fastestRoutine(waypoint),
+                        autoCompiler::compile);
             }
         }
-        SmartDashboard.putData("Autos", autos);
+        autos.registerText(
+                "Text Routine",
+                () -> SmartDashboard.getString(TEXT_ROUTINE_KEY, ""),
+                text -> {
+                    try {
+                        return autoCompiler.compile(text);
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("ERROR: Invalid text routine: " + e.getMessage());
+                        return autoCompiler.compile("");
+                    }
+                });
+        SmartDashboard.putData("Autos", autos.getChooser());
+    }
+
+    /**
+     * Starts ranking the routes from a waypoint on the prebuilder's thread the first time it's
+     * asked for. Empty until that's done, and the prebuilder builds the auto again once it's not.
+     */
+    private String fastestRoutine(Waypoint start) {
+        return fastestRoutines
+                .computeIfAbsent(
+                        start,
+                        waypoint ->
+                                autoPrebuilder.runInBackground(
+                                        () -> routeOptimizer().best(waypoint).routine))
+                .getNow("");
+    }
+
+    private RouteOptimizer routeOptimizer() {
+        if (routeOptimizer == null) {
+            routeOptimizer = new RouteOptimizer();
+        }
+        return routeOptimizer;
     }
 
     public void registerAutos() {
@@ -103,24 +158,28 @@ public class RobotContainer {
         // autos.add(CalibY.command.get());
         // autos.add(CalibTheta.command.get());
 
-        SmartDashboard.putString("Auto Routine", "0");
+        // Compiled when "Text Routine" is picked in the Autos chooser
+        SmartDashboard.putString(TEXT_ROUTINE_KEY, "SP");
     }
 
     public void configureButtonBindings() {
+        Shooter.get().setDefaultCommand(LoopProfiler.profile(new IdleShooter()));
+
         Swerve.get()
                 .setDefaultCommand(
-                        new FieldOrientedDrive(
-                                () -> -driveController.getLeftY(),
-                                () -> -driveController.getLeftX(),
-                                () -> -driveController.getRightX(),
-                                () -> driveController.getPOV(),
-                                () -> driveController.getB()));
+                        LoopProfiler.profile(
+                                new FieldOrientedDrive(
+                                        () -> -driveController.getLeftY(),
+                                        () -> -driveController.getLeftX(),
+                                        () -> -driveController.getRightX(),
+                                        () -> driveController.getPOV(),
+                                        () -> driveController.getB())));
 
         Trigger zero = new Trigger(() -> driveController.getA());
         zero.onTrue(new InstantCommand(() -> Swerve.get().zeroGyro()));
 
         Trigger intake = new Trigger(() -> driveController.getRightTrigger() > 0.15);
-        intake.onTrue(new IntakeCommand(false));
+        intake.onTrue(LoopProfiler.profile(new IntakeCommand(false)));
         intake.onFalse(
                 new ParallelCommandGroup(
                         new InstantCommand(() -> Intake.get().setVelocity(RPM.of(0)), Intake.get()),
@@ -131,33 +190,41 @@ public class RobotContainer {
         Trigger invertDriveX = new Trigger(() -> driveController.getY());
         invertDriveX.onTrue(new InstantCommand(() -> driveController.setInvertLeftX()));
 
+        Trigger shootOnTheMove = new Trigger(() -> driveController.getLeftTrigger() > 0.15);
+        shootOnTheMove.whileTrue(
+                LoopProfiler.profile(
+                        new ShootOnTheMove(
+                                () -> -driveController.getLeftY(),
+                                () -> -driveController.getLeftX())));
+
         Trigger spinUpSpeaker = new Trigger(() -> operatorPad.getRawButton(6));
-        spinUpSpeaker.onTrue(
-                new SpinUpShooter(
-                        SetpointConstants.SHOOTER_SPEEDS.SPEAKER.topSpeed,
-                        SetpointConstants.SHOOTER_SPEEDS.SPEAKER.bottomSpeed));
+        spinUpSpeaker.onTrue(LoopProfiler.profile(new TrackSpeaker()));
         spinUpSpeaker.onFalse(
                 new ParallelCommandGroup(
-                        new InstantCommand(
-                                () -> Shooter.get().setVelocity(RPM.of(0), RPM.of(0)),
-                                Shooter.get())));
+                        new InstantCommand(() -> Shooter.get().idle(), Shooter.get())));
 
         Trigger spinUpAmp = new Trigger(() -> operatorPad.getRawButton(5));
         spinUpAmp.onTrue(
-                new SpinUpShooter(
-                        SetpointConstants.SHOOTER_SPEEDS.AMP.topSpeed,
-                        SetpointConstants.SHOOTER_SPEEDS.AMP.bottomSpeed));
+                LoopProfiler.profile(
+                        new SpinUpShooter(
+                                SetpointConstants.SHOOTER_SPEEDS.AMP.topSpeed,
+                                SetpointConstants.SHOOTER_SPEEDS.AMP.bottomSpeed)));
         spinUpAmp.onFalse(
                 new ParallelCommandGroup(
-                        new InstantCommand(
-                                () -> Shooter.get().setVelocity(RPM.of(0), RPM.of(0)),
-                                Shooter.get())));
+                        new InstantCommand(() -> Shooter.get().idle(), Shooter.get())));
 
         Trigger feedNote = new Trigger(() -> operatorPad.getRawButton(7));
-        feedNote.onTrue(new FeedNote());
+        feedNote.onTrue(LoopProfiler.profile(new FeedNote()));
         feedNote.onFalse(
                 new InstantCommand(() -> Indexer.get().setVelocity(RPM.of(0)), Indexer.get()));
 
+        Trigger rapidFire = new Trigger(() -> operatorPad.getRawButton(8));
+        rapidFire.whileTrue(
+                LoopProfiler.profile(
+                        new RapidFire(
+                                SetpointConstants.SHOOTER_SPEEDS.SPEAKER.topSpeed,
+                                SetpointConstants.SHOOTER_SPEEDS.SPEAKER.bottomSpeed)));
+
         Trigger intakeShooter = new Trigger(() -> driveController.getRightBumper());
         intakeShooter.onTrue(
                 new ParallelRaceGroup(
@@ -171,14 +238,12 @@ public class RobotContainer {
                                                         SetpointConstants.SHOOTER_SPEEDS
                                                                 .INTAKE
                                                                 .bottomSpeed),
-                                () -> Shooter.get().setVelocity(RPM.of(0), RPM.of(0)),
+                                () -> Shooter.get().idle(),
                                 Shooter.get()),
                         new IntakeShooter()));
         intakeShooter.onFalse(
                 new ParallelCommandGroup(
-                        new InstantCommand(
-                                () -> Shooter.get().setVelocity(RPM.of(0), RPM.of(0)),
-                                Shooter.get()),
+                        new InstantCommand(() -> Shooter.get().idle(), Shooter.get()),
                         new InstantCommand(
                                 () -> Indexer.get().setVelocity(RPM.of(0)), Indexer.get()),
                         new InstantCommand(() -> RobotContainer.rumbleController(0))));
@@ -215,9 +280,7 @@ public class RobotContainer {
                         new InstantCommand(() -> Intake.get().setVelocity(RPM.of(0)), Intake.get()),
                         new InstantCommand(
                                 () -> Indexer.get().setVelocity(RPM.of(0)), Indexer.get()),
-                        new InstantCommand(
-                                () -> Shooter.get().setVelocity(RPM.of(0), RPM.of(0)),
-                                Shooter.get())));
+                        new InstantCommand(() -> Shooter.get().idle(), Shooter.get())));
 
         Trigger LEDS1 = new Trigger(() -> operatorPad.getRawButton(11));
         LEDS1.onTrue(new InstantCommand(() -> LEDs.get().send_to_rp2040(1)));
@@ -232,13 +295,18 @@ public class RobotContainer {
     public void configureTestBinds() {
         Swerve.get()
                 .setDefaultCommand(
-                        new TestDrive(
-                                () -> -driveController.getRightX(),
-                                () -> -driveController.getRightY(),
-                                () -> -driveController.getLeftX(),
-                                () -> driveController.getPOV(),
-                                () -> driveController.getB(),
-                                modulesEnabled));
+                        LoopProfiler.profile(
+                                new TestDrive(
+                                        () -> -driveController.getRightX(),
+                                        () -> -driveController.getRightY(),
+                                        () -> -driveController.getLeftX(),
+                                        () -> driveController.getPOV(),
+                                        () -> driveController.getB(),
+                                        modulesEnabled)));
+    }
+
+    public void prebuildAutonomousRoutine() {
+        autoPrebuilder.periodic();
     }
 
     public Command getAutonomousRoutine() {
@@ -3,18 +3,93 @@
 
 package com.koibots.robot.autos;
 
-import com.koibots.robot.Constants.AutoConstants;
+import static com.koibots.robot.subsystems.Subsystems.Swerve;
+
 import com.koibots.robot.Constants.SetpointConstants;
 import com.koibots.robot.Robot;
 import com.koibots.robot.commands.Intake.IntakeCommand;
 import com.koibots.robot.commands.Scoring.Shoot;
+import com.koibots.robot.commands.Shooter.PreSpinShooter;
+import com.koibots.robot.commands.Swerve.DriveToPose;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.ParallelCommandGroup;
+import edu.wpi.first.wpilibj2.command.ParallelDeadlineGroup;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
 
 public class AutoActions {
+    /** Drives straight onto a note, facing the way it's driving so the intake hits the note. */
+    private static Command driveToNote(Waypoint note) {
+        return new DriveToPose(
+                () -> {
+                    Translation2d position = note.getPose().getTranslation();
+                    Translation2d toNote =
+                            position.minus(Swerve.get().getEstimatedPose().getTranslation());
+                    return new Pose2d(position, new Rotation2d(toNote.getX(), toNote.getY()));
+                });
+    }
+
+    /** Drives to a note while intaking. */
+    static Command pickUp(Waypoint note) {
+        Command drive = new FollowLibraryPath(note, () -> driveToNote(note), null, null, null);
+        if (!Robot.isReal()) {
+            return drive;
+        }
+        return new ParallelCommandGroup(drive, new IntakeCommand(false));
+    }
+
+    /**
+     * Drives through a note without stopping and on to a scoring position, then shoots. The intake
+     * runs from the start of the pickup through the handoff, until the note is in or the robot
+     * gets to the scoring position, so it never outlasts the auto.
+     */
+    static Command pickUpAndScore(Waypoint note, Waypoint position) {
+        SegmentHandoff handoff = new SegmentHandoff();
+        Command drive =
+                new SequentialCommandGroup(
+                        new FollowLibraryPath(
+                                note, () -> driveToNote(note), null, position, handoff),
+                        driveToScore(position, handoff));
+        if (Robot.isReal()) {
+            drive = new ParallelDeadlineGroup(drive, new IntakeCommand(false));
+        }
+        return new SequentialCommandGroup(drive, shoot(position));
+    }
+
+    /**
+     * Drives to a scoring position and shoots, into the amp if it's the amp and the speaker
+     * otherwise.
+     */
+    static Command score(Waypoint position) {
+        return new SequentialCommandGroup(driveToScore(position, null), shoot(position));
+    }
+
+    private static SetpointConstants.SHOOTER_SPEEDS speedsFor(Waypoint position) {
+        return position == Waypoint.AMP
+                ? SetpointConstants.SHOOTER_SPEEDS.AMP
+                : SetpointConstants.SHOOTER_SPEEDS.SPEAKER;
+    }
+
+    /**
+     * Drives to a scoring position with the shooter spinning up on the way, timed to be ready as
+     * the robot arrives.
+     *
+     * @param entry Where the previous segment drove through, or null if the robot starts stopped
+     */
+    private static Command driveToScore(Waypoint position, SegmentHandoff entry) {
+        SetpointConstants.SHOOTER_SPEEDS speeds = speedsFor(position);
+        return new ParallelDeadlineGroup(
+                new FollowLibraryPath(
+                        position, () -> new DriveToPose(position.getPose()), entry, null, null),
+                new PreSpinShooter(position.getPose(), speeds.topSpeed, speeds.bottomSpeed));
+    }
+
+    private static Command shoot(Waypoint position) {
+        SetpointConstants.SHOOTER_SPEEDS speeds = speedsFor(position);
+        return new Shoot(speeds.topSpeed, speeds.bottomSpeed, false);
+    }
 
     public static Command SP() {
         return new Shoot(
@@ -23,67 +98,40 @@ public class AutoActions {
                 false);
     }
 
+    /** Drives 2 meters straight away from the alliance wall. */
     public static Command LS() {
-        return new DriveDistance(true);
+        return new DriveToPose(
+                () -> {
+                    Pose2d pose = Swerve.get().getEstimatedPose();
+                    return new Pose2d(pose.getX() + 2, pose.getY(), new Rotation2d());
+                });
     }
 
     public static Command PL() {
-        if (Robot.isReal()) {
-            return new ParallelCommandGroup(new DriveDistance(0), new IntakeCommand(false));
-        } else {
-            return new DriveDistance(0);
-        }
+        return pickUp(Waypoint.NOTE_LEFT);
     }
 
     public static Command PC() {
-        if (Robot.isReal()) {
-            return new ParallelCommandGroup(new DriveDistance(1), new IntakeCommand(false));
-        } else {
-            return new DriveDistance(1);
-        }
+        return pickUp(Waypoint.NOTE_CENTER);
     }
 
     public static Command PR() {
-        if (Robot.isReal()) {
-            return new ParallelCommandGroup(new DriveDistance(2), new IntakeCommand(false));
-        } else {
-            return new DriveDistance(2);
-        }
+        return pickUp(Waypoint.NOTE_RIGHT);
     }
 
     public static Command SL() {
-        return new SequentialCommandGroup(
-                new DriveDistance(AutoConstants.SCORING_POSITIONS[0]),
-                new Shoot(
-                        SetpointConstants.SHOOTER_SPEEDS.SPEAKER.topSpeed,
-                        SetpointConstants.SHOOTER_SPEEDS.SPEAKER.bottomSpeed,
-                        false));
+        return score(Waypoint.SCORE_LEFT);
     }
 
     public static Command SC() {
-        return new SequentialCommandGroup(
-                new DriveDistance(AutoConstants.SCORING_POSITIONS[1]),
-                new Shoot(
-                        SetpointConstants.SHOOTER_SPEEDS.SPEAKER.topSpeed,
-                        SetpointConstants.SHOOTER_SPEEDS.SPEAKER.bottomSpeed,
-                        false));
+        return score(Waypoint.SCORE_CENTER);
     }
 
     public static Command SR() {
-        return new SequentialCommandGroup(
-                new DriveDistance(AutoConstants.SCORING_POSITIONS[2]),
-                new Shoot(
-                        SetpointConstants.SHOOTER_SPEEDS.SPEAKER.topSpeed,
-                        SetpointConstants.SHOOTER_SPEEDS.SPEAKER.bottomSpeed,
-                        false));
+        return score(Waypoint.SCORE_RIGHT);
     }
 
     public static Command SA() {
-        return new SequentialCommandGroup(
-                new DriveDistance(new Pose2d(1.8415, 7.7724, new Rotation2d(-Math.PI / 2))),
-                new Shoot(
-                        SetpointConstants.SHOOTER_SPEEDS.AMP.topSpeed,
-                        SetpointConstants.SHOOTER_SPEEDS.AMP.bottomSpeed,
-                        false));
+        return score(Waypoint.AMP);
     }
 }
@@ -0,0 +1,140 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import edu.wpi.first.wpilibj2.command.WaitCommand;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Compiles text autos like "SP_PC_SC" into commands, one {@link AutoActions} step per token. Tokens
+ * are separated by underscores, spaces or commas. "W" waits 4 seconds and "W2.5" waits for the
+ * given number of seconds. Compiled routines are cached by their normalized text.
+ *
+ * <p>A pickup followed directly by a drive to score is chained into one step, so the robot drives
+ * through the note without stopping. The robot still stops to shoot, and before and after waits.
+ */
+public class AutoCompiler {
+    private static final double DEFAULT_WAIT_SECONDS = 4;
+
+    private static final Map<String, Supplier<Command>> ACTIONS =
+            Map.of(
+                    "SP", AutoActions::SP,
+                    "LS", AutoActions::LS,
+                    "PL", AutoActions::PL,
+                    "PC", AutoActions::PC,
+                    "PR", AutoActions::PR,
+                    "SL", AutoActions::SL,
+                    "SC", AutoActions::SC,
+                    "SR", AutoActions::SR,
+                    "SA", AutoActions::SA);
+
+    private final Map<String, Command> compiledAutos = new HashMap<>();
+
+    /**
+     * Splits and validates a text auto.
+     *
+     * @return The uppercase tokens
+     * @throws IllegalArgumentException If a token isn't an action or a valid wait
+     */
+    public static List<String> parse(String source) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : source.trim().toUpperCase(Locale.ROOT).split("[_\\s,]+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            if (!ACTIONS.containsKey(token) && waitSeconds(token) < 0) {
+                throw new IllegalArgumentException("Unknown auto action \"" + token + "\"");
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    /** @return The seconds a wait token waits for, or -1 if it isn't a wait */
+    private static double waitSeconds(String token) {
+        if (!token.startsWith("W")) {
+            return -1;
+        }
+        if (token.length() == 1) {
+            return DEFAULT_WAIT_SECONDS;
+        }
+        try {
+            double seconds = Double.parseDouble(token.substring(1));
+            return seconds >= 0 ? seconds : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Compiles a text auto, or returns the cached command if it was compiled before. */
+    public Command compile(String source) {
+        List<String> tokens = parse(source);
+        String key = String.join("_", tokens);
+
+        Command auto = compiledAutos.get(key);
+        if (auto == null) {
+            List<Command> steps = new ArrayList<>();
+            for (int a = 0; a < tokens.size(); a++) {
+                String token = tokens.get(a);
+                Waypoint waypoint = Waypoint.fromToken(token);
+                Waypoint next =
+                        a + 1 < tokens.size() ? Waypoint.fromToken(tokens.get(a + 1)) : null;
+
+                if (waypoint != null && waypoint.isNote() && next != null && !next.isNote()) {
+                    // Drive through the note straight into the scoring segment after it, as one
+                    // step so the intake can run across both
+                    steps.add(AutoActions.pickUpAndScore(waypoint, next));
+                    a++;
+                } else {
+                    steps.add(
+                            ACTIONS.containsKey(token)
+                                    ? ACTIONS.get(token).get()
+                                    : new WaitCommand(waitSeconds(token)));
+                }
+            }
+            auto =
+                    steps.isEmpty()
+                            ? new InstantCommand()
+                            : new SequentialCommandGroup(steps.toArray(new Command[0]));
+            compiledAutos.put(key, auto);
+        }
+        return auto;
+    }
+
+    /**
+     * Reads text autos from a file, one per line. Blank lines and lines starting with # are
+     * skipped.
+     */
+    public static List<String> readAutos(Path file) {
+        List<String> autos = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(file)) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                try {
+                    parse(line);
+                    autos.add(line);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("ERROR: Skipping auto \"" + line + "\": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("ERROR: Could not read autos from " + file);
+        }
+        return autos;
+    }
+}
@@ -0,0 +1,137 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj2.command.Command;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Gets the selected auto ready while disabled. Whenever the auto or starting position changes, the
+ * command is built and its parts are prebuilt for the starting position on the main thread, since
+ * command composition isn't thread safe, and then the expensive setup of its parts runs on a
+ * background thread. autonomousInit only has to schedule it.
+ */
+public class AutoPrebuilder {
+    /** A part of an auto with setup that can run ahead of time. */
+    public interface Warmable {
+        /**
+         * Gets ready for the robot to be at a pose when this part starts, on the main thread.
+         * Called on the parts in the order they were built.
+         *
+         * @return Where the robot will be after this part runs
+         */
+        default Pose2d prebuild(Pose2d pose) {
+            return pose;
+        }
+
+        /** Runs the expensive setup off the main thread, after every part is prebuilt. */
+        void warm();
+    }
+
+    private static List<Warmable> collecting = null;
+
+    private final AutoRegistry autos;
+    private final SendableChooser<Pose2d> startingPosition;
+    private final ExecutorService executor =
+            Executors.newSingleThreadExecutor(
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "AutoPrebuilder");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+    private String lastName = null;
+    private String lastSource = null;
+    private Pose2d lastStartingPose = null;
+    private Future<?> warming = null;
+
+    public AutoPrebuilder(AutoRegistry autos, SendableChooser<Pose2d> startingPosition) {
+        this.autos = autos;
+        this.startingPosition = startingPosition;
+    }
+
+    /** Called by parts of an auto while it's being built to get warmed when it's selected. */
+    public static void addWarmable(Warmable warmable) {
+        if (collecting != null) {
+            collecting.add(warmable);
+        }
+    }
+
+    static void startCollecting() {
+        collecting = new ArrayList<>();
+    }
+
+    static List<Warmable> stopCollecting() {
+        List<Warmable> collected = collecting;
+        collecting = null;
+        return collected;
+    }
+
+    /** Checks the choosers for changes. Call every loop while disabled. */
+    public void periodic() {
+        // Nothing is built or looked up unless the pick, its text or the start changed
+        String name = autos.getSelectedName();
+        String source = autos.getSource(name);
+        Pose2d startingPose = startingPosition.getSelected();
+
+        if (!Objects.equals(name, lastName)
+                || !source.equals(lastSource)
+                || !startingPose.equals(lastStartingPose)) {
+            lastName = name;
+            lastSource = source;
+            lastStartingPose = startingPose;
+            Command auto = autos.get(name);
+
+            if (warming != null) {
+                warming.cancel(true);
+            }
+
+            List<Warmable> warmables = autos.getWarmables(auto);
+            prebuild(warmables, startingPose);
+            warming =
+                    executor.submit(
+                            () -> {
+                                for (Warmable warmable : warmables) {
+                                    if (Thread.currentThread().isInterrupted()) {
+                                        return;
+                                    }
+                                    warmable.warm();
+                                }
+                            });
+        }
+
+        Logger.recordOutput("Autos/Ready", isReady());
+    }
+
+    /**
+     * Runs other setup for autos on the prebuilder's thread, in order with the warming, so it
+     * never holds up the main loop.
+     */
+    public <T> CompletableFuture<T> runInBackground(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /** @return Where the robot will be after every part runs */
+    static Pose2d prebuild(List<Warmable> warmables, Pose2d startingPose) {
+        Pose2d pose = startingPose;
+        for (Warmable warmable : warmables) {
+            pose = warmable.prebuild(pose);
+        }
+        return pose;
+    }
+
+    public boolean isReady() {
+        return warming != null && warming.isDone();
+    }
+}
@@ -0,0 +1,130 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Holds the name and factory of every auto, and only builds one when it gets selected or
+ * scheduled. Built autos are cached, so each one is constructed at most once. Autos built from
+ * text that can change are cached by that text, and only rebuilt when it changes.
+ */
+public class AutoRegistry {
+    public static final String DEFAULT_AUTO = "Nothing";
+
+    private final Map<String, Supplier<Command>> factories = new HashMap<>();
+    private final Map<String, Command> builtAutos = new HashMap<>();
+    private final Map<String, Supplier<String>> sources = new HashMap<>();
+    private final Map<String, String> builtSources = new HashMap<>();
+    private final Map<Command, List<AutoPrebuilder.Warmable>> warmables = new IdentityHashMap<>();
+    private final SendableChooser<String> chooser = new SendableChooser<>();
+
+    public AutoRegistry() {
+        factories.put(DEFAULT_AUTO, InstantCommand::new);
+        chooser.setDefaultOption(DEFAULT_AUTO, DEFAULT_AUTO);
+
+        // Build as soon as the drive team picks something, rather than in the first auto loop
+        chooser.onChange(this::get);
+    }
+
+    public void register(String name, Supplier<Command> factory) {
+        factories.put(name, factory);
+        chooser.addOption(name, name);
+    }
+
+    /**
+     * Registers an auto built from text that can change while the robot is on, like a dashboard
+     * field. It's built again only when the text is different from the last time it was built.
+     */
+    public void registerText(
+            String name, Supplier<String> source, Function<String, Command> factory) {
+        register(name, () -> factory.apply(builtSources.get(name)));
+        sources.put(name, source);
+    }
+
+    /** Registers every method of the given object that returns a command, without calling them. */
+    public void registerAll(Object autos) {
+        for (Method method : autos.getClass().getDeclaredMethods()) {
+            if (method.getParameterCount() != 0
+                    || !Command.class.isAssignableFrom(method.getReturnType())) {
+                continue;
+            }
+
+            register(
+                    method.getName(),
+                    () -> {
+                        try {
+                            return (Command) method.invoke(autos);
+                        } catch (IllegalAccessException | InvocationTargetException e) {
+                            e.printStackTrace();
+                            return new InstantCommand();
+                        }
+                    });
+        }
+    }
+
+    /** Gets an auto by name, building it first if it hasn't been yet. */
+    public Command get(String name) {
+        Supplier<String> source = sources.get(name);
+        if (source != null) {
+            String text = source.get();
+            if (!text.equals(builtSources.get(name))) {
+                builtSources.put(name, text);
+                builtAutos.remove(name);
+            }
+        }
+
+        Command auto = builtAutos.get(name);
+        if (auto == null) {
+            Supplier<Command> factory = factories.getOrDefault(name, factories.get(DEFAULT_AUTO));
+
+            long start = System.nanoTime();
+            AutoPrebuilder.startCollecting();
+            auto = factory.get();
+            List<AutoPrebuilder.Warmable> collected = AutoPrebuilder.stopCollecting();
+            if (!warmables.containsKey(auto)) {
+                // A factory that returned a cached command didn't construct anything this time
+                warmables.put(auto, collected);
+                Logger.recordOutput("Autos/BuildMs", (System.nanoTime() - start) / 1e6);
+            }
+
+            builtAutos.put(name, auto);
+        }
+        return auto;
+    }
+
+    public Command getSelected() {
+        return get(getSelectedName());
+    }
+
+    public String getSelectedName() {
+        return chooser.getSelected();
+    }
+
+    /** @return The text an auto is built from right now, or an empty string if it's fixed */
+    public String getSource(String name) {
+        Supplier<String> source = sources.get(name);
+        return source == null ? "" : source.get();
+    }
+
+    /** The parts of a built auto with setup that can run ahead of time. */
+    public List<AutoPrebuilder.Warmable> getWarmables(Command auto) {
+        return warmables.getOrDefault(auto, List.of());
+    }
+
+    public SendableChooser<String> getChooser() {
+        return chooser;
+    }
+}
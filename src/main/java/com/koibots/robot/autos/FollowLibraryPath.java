@@ -0,0 +1,119 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import static com.koibots.robot.subsystems.Subsystems.Swerve;
+
+import com.koibots.lib.trajectory.Trajectory;
+import com.koibots.robot.commands.Swerve.AutoFollower;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj2.command.Command;
+import java.util.function.Supplier;
+
+/**
+ * Follows the library path from the waypoint the robot is at when the segment starts, or runs the
+ * fallback if it isn't at one or the library is still generating. The path and its follower are
+ * picked ahead of time for where the robot is expected to be, and only picked again if it starts
+ * somewhere else.
+ */
+class FollowLibraryPath extends Command implements AutoPrebuilder.Warmable {
+    private final Waypoint to;
+    private final Supplier<Command> fallback;
+    private final SegmentHandoff entry;
+    private final Waypoint next;
+    private final SegmentHandoff exit;
+
+    private AutoFollower prepared = null;
+    private Command command = null;
+
+    /**
+     * @param entry Where the previous segment drove through, or null if the robot starts stopped
+     * @param next Where the following segment drives to, or null to stop at the end
+     * @param exit Filled in with where this segment drives through, or null to stop at the end
+     */
+    FollowLibraryPath(
+            Waypoint to,
+            Supplier<Command> fallback,
+            SegmentHandoff entry,
+            Waypoint next,
+            SegmentHandoff exit) {
+        this.to = to;
+        this.fallback = fallback;
+        this.entry = entry;
+        this.next = next;
+        this.exit = exit;
+
+        addRequirements(Swerve.get());
+        AutoPrebuilder.addWarmable(this);
+    }
+
+    /** @return The library path from a waypoint, or null if the fallback should run instead */
+    private Trajectory resolve(Waypoint from) {
+        // Checked first so a chain that falls back doesn't leave a handoff for the next segment
+        if (from == null || from == to || !PathLibrary.isReady()) {
+            if (exit != null) {
+                exit.clear();
+            }
+            return null;
+        }
+
+        if (next != null && exit != null) {
+            exit.set(from, to);
+            return PathLibrary.getInto(from, to, next);
+        }
+        if (entry != null && entry.droveThrough(from)) {
+            return PathLibrary.getOutOf(entry.from, from, to);
+        }
+        return PathLibrary.get(from, to);
+    }
+
+    private static AutoFollower follow(Trajectory path) {
+        int last = path.length() - 1;
+        boolean stopAtEnd = path.getVelocityX(last) == 0 && path.getVelocityY(last) == 0;
+        return new AutoFollower(path, false, false, stopAtEnd);
+    }
+
+    @Override
+    public Pose2d prebuild(Pose2d pose) {
+        Trajectory path = resolve(Waypoint.nearest(pose));
+        prepared = path == null ? null : follow(path);
+        return to.getPose();
+    }
+
+    @Override
+    public void warm() {
+        if (prepared != null) {
+            prepared.warm();
+        }
+    }
+
+    @Override
+    public void initialize() {
+        Trajectory path = resolve(Waypoint.nearest(Swerve.get().getEstimatedPose()));
+        if (path == null) {
+            command = fallback.get();
+        } else if (prepared != null && prepared.getTrajectory() == path) {
+            command = prepared;
+        } else {
+            command = follow(path);
+        }
+        command.initialize();
+    }
+
+    @Override
+    public void execute() {
+        command.execute();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return command.isFinished();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        command.end(interrupted);
+        command = null;
+    }
+}
@@ -0,0 +1,199 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import static edu.wpi.first.units.Units.*;
+
+import com.koibots.lib.trajectory.StraightLineGenerator;
+import com.koibots.lib.trajectory.Trajectory;
+import com.koibots.robot.Constants.AutoConstants;
+import com.koibots.robot.Constants.RobotConstants;
+import edu.wpi.first.math.geometry.Translation2d;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Paths between every pair of {@link Waypoint}s, generated on a background thread at boot so auto
+ * segments only have to look one up. Lookups never wait for generation, so segments that start
+ * before it's done run their fallback instead. Waypoints are alliance relative, so the same paths
+ * work for both alliances. Also holds the pairs of paths that drive through a note on the way from
+ * one waypoint to another without stopping, since the speed they hand off at only depends on
+ * those three waypoints.
+ */
+public class PathLibrary {
+    private static final StraightLineGenerator generator = createGenerator();
+
+    private static CompletableFuture<Paths> paths = null;
+
+    private static class Paths {
+        final Trajectory[][] stopped;
+        // Indexed by from, via, to
+        final Trajectory[][][] into;
+        final Trajectory[][][] outOf;
+
+        Paths(int waypoints) {
+            stopped = new Trajectory[waypoints][waypoints];
+            into = new Trajectory[waypoints][waypoints][waypoints];
+            outOf = new Trajectory[waypoints][waypoints][waypoints];
+        }
+    }
+
+    /** Starts generating the paths. */
+    public static void generate() {
+        paths =
+                CompletableFuture.supplyAsync(
+                        PathLibrary::generateAll,
+                        runnable -> {
+                            Thread thread = new Thread(runnable, "PathLibrary");
+                            thread.setDaemon(true);
+                            thread.start();
+                        });
+    }
+
+    private static StraightLineGenerator createGenerator() {
+        double scale = AutoConstants.PATH_CONSTRAINT_SCALE;
+        return new StraightLineGenerator(
+                RobotConstants.MAX_LINEAR_SPEED.in(MetersPerSecond) * scale,
+                RobotConstants.MAX_LINEAR_ACCELERATION.in(MetersPerSecondPerSecond) * scale,
+                RobotConstants.MAX_ANGULAR_VELOCITY.in(RadiansPerSecond) * scale,
+                RobotConstants.MAX_ANGULAR_ACCELERATION.in(RadiansPerSecond.per(Second)) * scale);
+    }
+
+    private static Paths generateAll() {
+        Waypoint[] waypoints = Waypoint.values();
+        Paths generated = new Paths(waypoints.length);
+        for (Waypoint from : waypoints) {
+            for (Waypoint to : waypoints) {
+                if (from == to) {
+                    continue;
+                }
+                generated.stopped[from.ordinal()][to.ordinal()] =
+                        generator.generate(from.getPose(), to.getPose());
+            }
+        }
+
+        // Autos only drive through notes, see AutoCompiler
+        for (Waypoint via : waypoints) {
+            if (!via.isNote()) {
+                continue;
+            }
+            for (Waypoint from : waypoints) {
+                for (Waypoint to : waypoints) {
+                    if (from == via || to == via) {
+                        continue;
+                    }
+                    Trajectory into =
+                            generator.generate(
+                                    from.getPose(),
+                                    via.getPose(),
+                                    0,
+                                    handoffSpeed(from, via, to));
+                    // The path may not reach the handoff speed if it's short
+                    int last = into.length() - 1;
+                    double exitSpeed = Math.hypot(into.getVelocityX(last), into.getVelocityY(last));
+                    generated.into[from.ordinal()][via.ordinal()][to.ordinal()] = into;
+                    generated.outOf[from.ordinal()][via.ordinal()][to.ordinal()] =
+                            generator.generate(via.getPose(), to.getPose(), exitSpeed, 0);
+                }
+            }
+        }
+        return generated;
+    }
+
+    /** @return If every path is generated, so lookups return them */
+    public static boolean isReady() {
+        if (paths == null) {
+            generate();
+        }
+        return paths.isDone() && !paths.isCompletedExceptionally();
+    }
+
+    /** @return The paths, or null if they're still generating */
+    private static Paths getPaths() {
+        return isReady() ? paths.getNow(null) : null;
+    }
+
+    /**
+     * Gets the path between two waypoints.
+     *
+     * @return The path, or null if the library is still generating
+     * @throws IllegalArgumentException If both waypoints are the same
+     */
+    public static Trajectory get(Waypoint from, Waypoint to) {
+        if (from == to) {
+            throw new IllegalArgumentException("No path from " + from + " to itself");
+        }
+        Paths generated = getPaths();
+        return generated == null ? null : generated.stopped[from.ordinal()][to.ordinal()];
+    }
+
+    /**
+     * Gets the first half of driving from one waypoint to another through a third, which starts
+     * stopped and ends moving toward the third.
+     *
+     * @return The path, or null if the library is still generating
+     * @throws IllegalArgumentException If via isn't a note, or is either end
+     */
+    public static Trajectory getInto(Waypoint from, Waypoint via, Waypoint to) {
+        checkChain(from, via, to);
+        Paths generated = getPaths();
+        return generated == null
+                ? null
+                : generated.into[from.ordinal()][via.ordinal()][to.ordinal()];
+    }
+
+    /**
+     * Gets the second half of driving from one waypoint to another through a third, which starts
+     * at the speed the first half ends at and ends stopped.
+     *
+     * @return The path, or null if the library is still generating
+     * @throws IllegalArgumentException If via isn't a note, or is either end
+     */
+    public static Trajectory getOutOf(Waypoint from, Waypoint via, Waypoint to) {
+        checkChain(from, via, to);
+        Paths generated = getPaths();
+        return generated == null
+                ? null
+                : generated.outOf[from.ordinal()][via.ordinal()][to.ordinal()];
+    }
+
+    private static void checkChain(Waypoint from, Waypoint via, Waypoint to) {
+        if (!via.isNote() || from == via || to == via) {
+            throw new IllegalArgumentException(
+                    "No path from " + from + " through " + via + " to " + to);
+        }
+    }
+
+    /** @return How long it takes to drive from one waypoint to another through a third */
+    public static double chainedTime(Waypoint from, Waypoint via, Waypoint to) {
+        double speed = handoffSpeed(from, via, to);
+        return generator.duration(from.getPose(), via.getPose(), 0, speed)
+                + generator.duration(via.getPose(), to.getPose(), speed, 0);
+    }
+
+    /**
+     * The speed to pass through a waypoint at when driving from one waypoint to another by way of
+     * it. The paths on either side are straight, so the velocity changes direction instantly at
+     * the waypoint, and the speed is limited so the size of that change stays small enough for the
+     * drive's controllers to absorb.
+     */
+    public static double handoffSpeed(Waypoint from, Waypoint via, Waypoint to) {
+        Translation2d through = via.getPose().getTranslation();
+        Translation2d in = through.minus(from.getPose().getTranslation());
+        Translation2d out = to.getPose().getTranslation().minus(through);
+        if (in.getNorm() == 0 || out.getNorm() == 0) {
+            return 0;
+        }
+
+        double turn = Math.abs(in.getAngle().minus(out.getAngle()).getRadians());
+        double velocityChangePerSpeed = 2 * Math.sin(turn / 2);
+        double maxSpeed = generator.getMaxLinearVelocity();
+        if (velocityChangePerSpeed == 0) {
+            return maxSpeed;
+        }
+        return Math.min(
+                maxSpeed,
+                AutoConstants.MAX_HANDOFF_VELOCITY_CHANGE.in(MetersPerSecond)
+                        / velocityChangePerSpeed);
+    }
+}
@@ -0,0 +1,179 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import static edu.wpi.first.units.Units.Seconds;
+
+import com.koibots.robot.Constants.AutoConstants;
+import edu.wpi.first.math.geometry.Pose2d;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Ranks every speaker auto that fits in the auto period. A route shoots the preload, then picks up
+ * notes in some order and scores each one from any of the scoring positions. Its cost is the sum
+ * of the path times, driving through each note into the scoring segment like compiled text autos
+ * do, plus the shoot durations. The orderings are searched in parallel on the common fork join
+ * pool.
+ *
+ * <p>Run {@code ./gradlew optimizeAutos} to print the rankings for every starting position.
+ */
+public class RouteOptimizer {
+    private static final Waypoint[] NOTES = {
+        Waypoint.NOTE_LEFT, Waypoint.NOTE_CENTER, Waypoint.NOTE_RIGHT
+    };
+    private static final Waypoint[] SCORING_POSITIONS = {
+        Waypoint.SCORE_LEFT, Waypoint.SCORE_CENTER, Waypoint.SCORE_RIGHT
+    };
+
+    // Deeper branches are searched on the thread that reached them
+    private static final int FORK_DEPTH = 2;
+
+    public static class Route {
+        public final String routine;
+        public final int notes;
+        public final double seconds;
+
+        Route(String routine, int notes, double seconds) {
+            this.routine = routine;
+            this.notes = notes;
+            this.seconds = seconds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-24s %d notes %6.2f s", routine, notes, seconds);
+        }
+    }
+
+    /** Most notes first, then fastest. */
+    public static final Comparator<Route> RANKING =
+            Comparator.<Route>comparingInt(route -> -route.notes)
+                    .thenComparingDouble(route -> route.seconds);
+
+    private final double[][][] legTimes; // [from][note][scoring position]
+    private final double shootTime = AutoConstants.SHOOT_DURATION.in(Seconds);
+    private final double timeLimit = AutoConstants.AUTO_DURATION.in(Seconds);
+
+    /** Builds the cost table of every pickup and score leg. */
+    public RouteOptimizer() {
+        int waypoints = Waypoint.values().length;
+        legTimes = new double[waypoints][waypoints][waypoints];
+        for (Waypoint from : Waypoint.values()) {
+            for (Waypoint note : NOTES) {
+                for (Waypoint scoringPosition : SCORING_POSITIONS) {
+                    legTimes[from.ordinal()][note.ordinal()][scoringPosition.ordinal()] =
+                            PathLibrary.chainedTime(from, note, scoringPosition);
+                }
+            }
+        }
+    }
+
+    /** @return Every route from the starting waypoint that fits in the auto period, best first */
+    public List<Route> rank(Waypoint start) {
+        List<Route> routes =
+                ForkJoinPool.commonPool().invoke(new Search(start, 0, "SP", 0, 0, shootTime));
+        routes.sort(RANKING);
+        return routes;
+    }
+
+    /** @return The best route from the starting waypoint, which is at least the preload */
+    public Route best(Waypoint start) {
+        return rank(start).get(0);
+    }
+
+    private class Search extends RecursiveTask<List<Route>> {
+        private final Waypoint position;
+        private final int pickedNotes; // Bitmask of NOTES
+        private final String routine;
+        private final int notes;
+        private final int depth;
+        private final double seconds;
+
+        Search(
+                Waypoint position,
+                int pickedNotes,
+                String routine,
+                int notes,
+                int depth,
+                double seconds) {
+            this.position = position;
+            this.pickedNotes = pickedNotes;
+            this.routine = routine;
+            this.notes = notes;
+            this.depth = depth;
+            this.seconds = seconds;
+        }
+
+        @Override
+        protected List<Route> compute() {
+            List<Route> routes = new ArrayList<>();
+            routes.add(new Route(routine, notes, seconds));
+
+            List<Search> branches = new ArrayList<>();
+            for (int a = 0; a < NOTES.length; a++) {
+                if ((pickedNotes & (1 << a)) != 0) {
+                    continue;
+                }
+                for (Waypoint scoringPosition : SCORING_POSITIONS) {
+                    double scored =
+                            seconds + legTime(position, NOTES[a], scoringPosition) + shootTime;
+                    if (scored > timeLimit) {
+                        continue;
+                    }
+
+                    String next = "_" + NOTES[a].token + "_" + scoringPosition.token;
+                    branches.add(
+                            new Search(
+                                    scoringPosition,
+                                    pickedNotes | (1 << a),
+                                    routine + next,
+                                    notes + 1,
+                                    depth + 1,
+                                    scored));
+                }
+            }
+
+            if (depth < FORK_DEPTH) {
+                invokeAll(branches);
+                for (Search branch : branches) {
+                    routes.addAll(branch.join());
+                }
+            } else {
+                for (Search branch : branches) {
+                    routes.addAll(branch.compute());
+                }
+            }
+            return routes;
+        }
+    }
+
+    private double legTime(Waypoint from, Waypoint note, Waypoint scoringPosition) {
+        return legTimes[from.ordinal()][note.ordinal()][scoringPosition.ordinal()];
+    }
+
+    /** Prints the best routes from each starting position. */
+    public static void main(String[] args) {
+        int shown = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+
+        RouteOptimizer optimizer = new RouteOptimizer();
+        for (Map.Entry<String, Pose2d> start : AutoConstants.STARTING_POSITIONS.entrySet()) {
+            Waypoint waypoint = Waypoint.nearest(start.getValue());
+            if (waypoint == null) {
+                System.out.println(start.getKey() + ": not at a waypoint");
+                continue;
+            }
+
+            List<Route> routes = optimizer.rank(waypoint);
+            System.out.println(start.getKey() + ", " + routes.size() + " routes fit:");
+            for (Route route : routes.subList(0, Math.min(shown, routes.size()))) {
+                System.out.println("    " + route);
+            }
+        }
+    }
+}
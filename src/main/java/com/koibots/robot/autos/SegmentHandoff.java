@@ -0,0 +1,30 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+/**
+ * Passes which waypoint one drive segment drove through to the segment after it, so the second one
+ * can pick up at the speed the first ended at instead of the robot stopping there.
+ */
+class SegmentHandoff {
+    /** Where the first segment started, or null if it didn't drive through a waypoint */
+    Waypoint from = null;
+
+    /** The waypoint the segments meet at */
+    Waypoint via = null;
+
+    void set(Waypoint from, Waypoint via) {
+        this.from = from;
+        this.via = via;
+    }
+
+    void clear() {
+        set(null, null);
+    }
+
+    /** @return If the first segment drove through the waypoint without stopping */
+    boolean droveThrough(Waypoint waypoint) {
+        return from != null && waypoint == via;
+    }
+}
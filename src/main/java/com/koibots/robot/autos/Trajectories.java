@@ -0,0 +1,35 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import com.koibots.lib.trajectory.Trajectory;
+import com.koibots.lib.trajectory.TrajectoryLoader;
+import edu.wpi.first.wpilibj.Filesystem;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import org.littletonrobotics.junction.Logger;
+
+/** Compiled Choreo trajectories, mapped once at startup. */
+public class Trajectories {
+    private static Map<String, Trajectory> trajectories = new HashMap<>();
+
+    public static void load() {
+        long start = System.nanoTime();
+        trajectories =
+                TrajectoryLoader.loadAll(
+                        new File(Filesystem.getDeployDirectory(), "choreo-compiled"));
+
+        Logger.recordOutput("Autos/LoadedTrajectories", trajectories.size());
+        Logger.recordOutput("Autos/TrajectoryLoadMs", (System.nanoTime() - start) / 1e6);
+    }
+
+    public static Trajectory get(String name) {
+        Trajectory trajectory = trajectories.get(name);
+        if (trajectory == null) {
+            throw new IllegalArgumentException("No compiled trajectory named " + name);
+        }
+        return trajectory;
+    }
+}
@@ -0,0 +1,95 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import static edu.wpi.first.units.Units.Meters;
+
+import com.koibots.robot.Constants.AutoConstants;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Known alliance relative field positions that autos drive between, in the same frame as the pose
+ * estimator. The starting positions are the same as the scoring positions, so they don't get their
+ * own entries.
+ */
+public enum Waypoint {
+    SCORE_LEFT("SL"),
+    SCORE_CENTER("SC"),
+    SCORE_RIGHT("SR"),
+    NOTE_LEFT("PL"),
+    NOTE_CENTER("PC"),
+    NOTE_RIGHT("PR"),
+    AMP("SA");
+
+    /** The text auto action that drives here, see {@link AutoCompiler} */
+    public final String token;
+
+    Waypoint(String token) {
+        this.token = token;
+    }
+
+    public Pose2d getPose() {
+        switch (this) {
+            case SCORE_LEFT:
+                return AutoConstants.SCORING_POSITIONS[0];
+            case SCORE_CENTER:
+                return AutoConstants.SCORING_POSITIONS[1];
+            case SCORE_RIGHT:
+                return AutoConstants.SCORING_POSITIONS[2];
+            case NOTE_LEFT:
+                return notePose(0);
+            case NOTE_CENTER:
+                return notePose(1);
+            case NOTE_RIGHT:
+                return notePose(2);
+            default:
+                return AutoConstants.AMP_POSITION;
+        }
+    }
+
+    public boolean isNote() {
+        return this == NOTE_LEFT || this == NOTE_CENTER || this == NOTE_RIGHT;
+    }
+
+    /** @return The waypoint a text auto action drives to, or null if it doesn't drive anywhere */
+    public static Waypoint fromToken(String token) {
+        for (Waypoint waypoint : values()) {
+            if (waypoint.token.equals(token)) {
+                return waypoint;
+            }
+        }
+        return null;
+    }
+
+    /** Notes are picked up facing straight away from the center scoring position. */
+    private static Pose2d notePose(int note) {
+        Translation2d position = AutoConstants.NOTE_POSITIONS[note];
+        Translation2d fromScoring =
+                position.minus(AutoConstants.SCORING_POSITIONS[1].getTranslation());
+        return new Pose2d(position, new Rotation2d(fromScoring.getX(), fromScoring.getY()));
+    }
+
+    /**
+     * Finds the waypoint the robot is sitting at.
+     *
+     * @return The closest waypoint, or null if none are within the waypoint tolerance
+     */
+    public static Waypoint nearest(Pose2d pose) {
+        Waypoint nearest = null;
+        double nearestDistance = AutoConstants.WAYPOINT_TOLERANCE.in(Meters);
+        for (Waypoint waypoint : values()) {
+            double distance =
+                    Math.hypot(
+                            waypoint.getPose().getX() - pose.getX(),
+                            waypoint.getPose().getY() - pose.getY());
+            if (distance <= nearestDistance) {
+                nearest = waypoint;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+}
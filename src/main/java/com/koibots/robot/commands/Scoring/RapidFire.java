@@ -0,0 +1,112 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.commands.Scoring;
+
+import static com.koibots.robot.subsystems.Subsystems.*;
+import static edu.wpi.first.units.Units.*;
+
+import com.koibots.robot.Constants.ControlConstants;
+import com.koibots.robot.Constants.SensorConstants;
+import com.koibots.robot.Constants.SetpointConstants;
+import edu.wpi.first.units.*;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Shoots every note it's given back to back, until interrupted. The flywheels stay at speed the
+ * whole time while the intake loads each note up to the indexer sensor. The note is released as
+ * soon as the flywheels are predicted to have recovered from the last shot by the time it reaches
+ * them, and the intake loads the next one as soon as the shot is seen.
+ */
+public class RapidFire extends Command {
+    private enum Stage {
+        LOADING,
+        HOLDING,
+        FIRING
+    }
+
+    private final Measure<Velocity<Angle>> topSpeed;
+    private final Measure<Velocity<Angle>> bottomSpeed;
+
+    private final Timer stageTimer = new Timer();
+    private final Timer recoveryTimer = new Timer();
+    private final double releaseLatency = ControlConstants.SHOT_RELEASE_LATENCY.in(Seconds);
+    private final double shotTimeout = SensorConstants.SHOT_TIMEOUT.in(Seconds);
+
+    private Stage stage;
+    private boolean noteCleared;
+    private boolean shotSeen;
+    private boolean recovering;
+    private int shots;
+
+    public RapidFire(Measure<Velocity<Angle>> topSpeed, Measure<Velocity<Angle>> bottomSpeed) {
+        this.topSpeed = topSpeed;
+        this.bottomSpeed = bottomSpeed;
+        addRequirements(Shooter.get(), Indexer.get(), Intake.get());
+    }
+
+    @Override
+    public void initialize() {
+        Shooter.get().setVelocity(topSpeed, bottomSpeed);
+        recovering = false;
+        shots = 0;
+        load();
+    }
+
+    private void load() {
+        stage = Stage.LOADING;
+        Intake.get().setVelocity(SetpointConstants.INTAKE_SPEED);
+        Indexer.get().setVelocity(SetpointConstants.INTAKE_INDEXER_SPEED);
+    }
+
+    @Override
+    public void execute() {
+        if (recovering && Shooter.get().atSetpoint()) {
+            recovering = false;
+            Logger.recordOutput("RapidFire/RecoverySeconds", recoveryTimer.get());
+        }
+
+        switch (stage) {
+            case LOADING:
+                if (Indexer.get().sensorTriggered()) {
+                    stage = Stage.HOLDING;
+                    Intake.get().setVelocity(RPM.of(0));
+                    Indexer.get().setVelocity(RPM.of(0));
+                }
+                break;
+            case HOLDING:
+                if (Shooter.get().atSetpointAfter(releaseLatency)) {
+                    stage = Stage.FIRING;
+                    noteCleared = false;
+                    shotSeen = false;
+                    stageTimer.restart();
+                    Indexer.get().setVelocity(SetpointConstants.SHOOTER_INDEXER_SPEED);
+                    // Still recovering from the last shot, so a dip is measured from here
+                    Shooter.get().startShotDetection();
+                }
+                break;
+            case FIRING:
+                noteCleared |= !Indexer.get().sensorTriggered();
+                shotSeen |= Shooter.get().noteDetected();
+                if ((noteCleared && shotSeen) || stageTimer.hasElapsed(shotTimeout)) {
+                    shots++;
+                    recovering = true;
+                    recoveryTimer.restart();
+                    load();
+                }
+                break;
+        }
+
+        Logger.recordOutput("RapidFire/Stage", stage.name());
+        Logger.recordOutput("RapidFire/Shots", shots);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        Intake.get().setVelocity(RPM.of(0));
+        Indexer.get().setVelocity(RPM.of(0));
+        Shooter.get().idle();
+    }
+}
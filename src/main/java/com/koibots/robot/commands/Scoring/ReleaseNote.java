@@ -0,0 +1,83 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.commands.Scoring;
+
+import static com.koibots.robot.subsystems.Subsystems.Indexer;
+import static com.koibots.robot.subsystems.Subsystems.Shooter;
+import static edu.wpi.first.units.Units.RPM;
+import static edu.wpi.first.units.Units.Seconds;
+
+import com.koibots.robot.Constants.SensorConstants;
+import com.koibots.robot.Constants.SetpointConstants;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Feeds a note into the shooter as soon as it has held its setpoint for the debounce time, then
+ * finishes once the shot is seen: the note has cleared the indexer sensor and the flywheels have
+ * slowed down or spiked in current from it. Gives up without feeding if the shooter never gets to
+ * speed, and finishes anyway if the shot is never seen. Doesn't set the shooter speeds, so
+ * something else needs to be spinning it up.
+ */
+public class ReleaseNote extends Command {
+    private final Debouncer atSetpoint =
+            new Debouncer(
+                    SensorConstants.SHOOTER_SETPOINT_DEBOUNCE.in(Seconds),
+                    Debouncer.DebounceType.kRising);
+    private final Timer timer = new Timer();
+    private final double spinUpTimeout = SensorConstants.SHOOTER_SPIN_UP_TIMEOUT.in(Seconds);
+    private final double shotTimeout = SensorConstants.SHOT_TIMEOUT.in(Seconds);
+
+    private boolean fed;
+    private boolean noteCleared;
+    private boolean shotSeen;
+
+    public ReleaseNote() {
+        addRequirements(Indexer.get());
+    }
+
+    @Override
+    public void initialize() {
+        atSetpoint.calculate(false);
+        fed = false;
+        noteCleared = false;
+        shotSeen = false;
+        timer.restart();
+    }
+
+    @Override
+    public void execute() {
+        if (!fed) {
+            if (atSetpoint.calculate(Shooter.get().atSetpoint())) {
+                Indexer.get().setVelocity(SetpointConstants.SHOOTER_INDEXER_SPEED);
+                Shooter.get().startShotDetection();
+                fed = true;
+                timer.restart();
+            }
+            return;
+        }
+
+        // Either can come first depending on where the note sat in the indexer
+        noteCleared |= !Indexer.get().sensorTriggered();
+        shotSeen |= Shooter.get().noteDetected();
+    }
+
+    @Override
+    public boolean isFinished() {
+        if (!fed) {
+            return timer.hasElapsed(spinUpTimeout);
+        }
+        return (noteCleared && shotSeen) || timer.hasElapsed(shotTimeout);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        Indexer.get().setVelocity(RPM.of(0));
+
+        Logger.recordOutput("ReleaseNote/Fed", fed);
+        Logger.recordOutput("ReleaseNote/ShotSeen", noteCleared && shotSeen);
+    }
+}
@@ -0,0 +1,121 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.commands.Scoring;
+
+import static com.koibots.robot.subsystems.Subsystems.*;
+import static edu.wpi.first.units.Units.*;
+
+import com.koibots.robot.Constants.ControlConstants;
+import com.koibots.robot.Constants.SetpointConstants;
+import com.koibots.robot.subsystems.shooter.ShotCalculator;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import java.util.function.DoubleSupplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Shoots into the speaker without stopping. The driver keeps control of translation, at a capped
+ * speed, while the heading tracks the moving shot solution and the shooter tracks its speeds. The
+ * indexer feeds as soon as the shooter is at speed and the heading will be on target when the note
+ * leaves.
+ */
+public class ShootOnTheMove extends Command {
+    private final DoubleSupplier vxSupplier;
+    private final DoubleSupplier vySupplier;
+
+    private final ShotCalculator shot = new ShotCalculator();
+    private final PIDController headingController;
+    private final Timer releaseTimer = new Timer();
+    private final double maxSpeed =
+            ControlConstants.MAX_SHOOT_ON_THE_MOVE_SPEED.in(MetersPerSecond);
+    private final double releaseLatency = ControlConstants.SHOT_RELEASE_LATENCY.in(Seconds);
+
+    private boolean released;
+    private final double[] target = new double[2]; // x, y
+
+    /**
+     * @param vxSupplier Field relative, from -1 to 1 like {@link
+     *     com.koibots.robot.commands.Swerve.FieldOrientedDrive}
+     * @param vySupplier Field relative, from -1 to 1
+     */
+    public ShootOnTheMove(DoubleSupplier vxSupplier, DoubleSupplier vySupplier) {
+        this.vxSupplier = vxSupplier;
+        this.vySupplier = vySupplier;
+
+        headingController =
+                new PIDController(
+                        ControlConstants.DRIVE_TO_POSE_ROTATION_PID.kP,
+                        ControlConstants.DRIVE_TO_POSE_ROTATION_PID.kI,
+                        ControlConstants.DRIVE_TO_POSE_ROTATION_PID.kD);
+        headingController.enableContinuousInput(-Math.PI, Math.PI);
+
+        addRequirements(Swerve.get(), Shooter.get(), Indexer.get());
+    }
+
+    @Override
+    public void initialize() {
+        headingController.reset();
+        released = false;
+        releaseTimer.stop();
+        releaseTimer.reset();
+    }
+
+    @Override
+    public void execute() {
+        Pose2d pose = Swerve.get().getEstimatedPose();
+        ChassisSpeeds speeds = Swerve.get().getRelativeSpeeds();
+        shot.update(pose, speeds);
+        Shooter.get().setVelocity(shot.getTopSpeed(), shot.getBottomSpeed());
+
+        double vxInput = vxSupplier.getAsDouble();
+        double vyInput = vySupplier.getAsDouble();
+        double inputMagnitude = Math.hypot(vxInput, vyInput);
+        double linearMagnitude =
+                MathUtil.applyDeadband(Math.min(inputMagnitude, 1), ControlConstants.DEADBAND, 1);
+        linearMagnitude *= linearMagnitude;
+        double directionCos = (inputMagnitude > 1e-6) ? vxInput / inputMagnitude : 1.0;
+        double directionSin = (inputMagnitude > 1e-6) ? vyInput / inputMagnitude : 0.0;
+
+        double currentHeading = pose.getRotation().getRadians();
+        Swerve.get()
+                .driveFieldRelative(
+                        linearMagnitude * directionCos * maxSpeed,
+                        linearMagnitude * directionSin * maxSpeed,
+                        shot.getHeadingRate()
+                                + headingController.calculate(currentHeading, shot.getHeading()));
+
+        if (!released
+                && Shooter.get().atSetpoint()
+                && shot.readyToRelease(currentHeading, speeds.omegaRadiansPerSecond)) {
+            Indexer.get().setVelocity(SetpointConstants.SHOOTER_INDEXER_SPEED);
+            released = true;
+            releaseTimer.restart();
+        }
+
+        target[0] = shot.getTargetX();
+        target[1] = shot.getTargetY();
+        Logger.recordOutput("ShootOnTheMove/VirtualTarget", target);
+        Logger.recordOutput(
+                "ShootOnTheMove/ReleaseHeadingErrorRadians",
+                shot.getReleaseHeadingError(currentHeading, speeds.omegaRadiansPerSecond));
+        Logger.recordOutput("ShootOnTheMove/Released", released);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return released
+                && !Indexer.get().sensorTriggered()
+                && releaseTimer.hasElapsed(releaseLatency);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        Indexer.get().setVelocity(RPM.of(0));
+        Shooter.get().idle();
+    }
+}
@@ -0,0 +1,52 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.commands.Shooter;
+
+import static com.koibots.robot.subsystems.Subsystems.Indexer;
+import static com.koibots.robot.subsystems.Subsystems.Shooter;
+import static com.koibots.robot.subsystems.Subsystems.Swerve;
+import static edu.wpi.first.units.Units.Seconds;
+
+import com.koibots.robot.Constants.ControlConstants;
+import com.koibots.robot.subsystems.shooter.ShotCalculator;
+import edu.wpi.first.wpilibj2.command.Command;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * The shooter's default command. Holds the idle speeds, unless the robot has a note and is heading
+ * into shooting range soon enough that the flywheels need to start now to be ready when it gets
+ * there. Then it spins up to the speeds for the shot.
+ */
+public class IdleShooter extends Command {
+    private final ShotCalculator shot = new ShotCalculator();
+    private final double margin = ControlConstants.SHOOTER_PRE_SPIN_MARGIN.in(Seconds);
+
+    public IdleShooter() {
+        addRequirements(Shooter.get());
+    }
+
+    @Override
+    public void execute() {
+        if (!Indexer.get().sensorTriggered()) {
+            Shooter.get().idle();
+            return;
+        }
+
+        shot.update(Swerve.get().getEstimatedPose(), Swerve.get().getRelativeSpeeds());
+        double timeLeft =
+                shot.inRange()
+                        ? 0
+                        : PreSpinShooter.timeToDrive(
+                                shot.getDistance() - ShotCalculator.getMaxDistance(),
+                                shot.getClosingSpeed());
+        if (timeLeft
+                <= Shooter.get().spinUpTime(shot.getTopSpeed(), shot.getBottomSpeed()) + margin) {
+            Shooter.get().setVelocity(shot.getTopSpeed(), shot.getBottomSpeed());
+        } else {
+            Shooter.get().idle();
+        }
+
+        Logger.recordOutput("IdleShooter/TimeToRangeSeconds", timeLeft);
+    }
+}
@@ -0,0 +1,108 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.commands.Shooter;
+
+import static com.koibots.robot.subsystems.Subsystems.Shooter;
+import static com.koibots.robot.subsystems.Subsystems.Swerve;
+import static edu.wpi.first.units.Units.*;
+
+import com.koibots.robot.Constants.AutoConstants;
+import com.koibots.robot.Constants.ControlConstants;
+import com.koibots.robot.Constants.RobotConstants;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.units.*;
+import edu.wpi.first.wpilibj2.command.Command;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Idles the shooter while the robot drives to where it'll shoot from, then spins it up once the
+ * time left to get there is about the time the flywheels need, so they're ready as it arrives.
+ * Meant to run alongside the drive, and doesn't finish on its own.
+ */
+public class PreSpinShooter extends Command {
+    private static final TrapezoidProfile DRIVE_PROFILE =
+            new TrapezoidProfile(
+                    new TrapezoidProfile.Constraints(
+                            RobotConstants.MAX_LINEAR_SPEED.in(MetersPerSecond)
+                                    * AutoConstants.PATH_CONSTRAINT_SCALE,
+                            RobotConstants.MAX_LINEAR_ACCELERATION.in(MetersPerSecondPerSecond)
+                                    * AutoConstants.PATH_CONSTRAINT_SCALE));
+    private static final TrapezoidProfile.State CURRENT = new TrapezoidProfile.State();
+    private static final TrapezoidProfile.State GOAL = new TrapezoidProfile.State();
+
+    private final Pose2d target;
+    private final double topRPM;
+    private final double bottomRPM;
+    private final double margin = ControlConstants.SHOOTER_PRE_SPIN_MARGIN.in(Seconds);
+
+    private boolean spinning;
+
+    /** @param target Where the robot shoots from, alliance relative like the auto waypoints */
+    public PreSpinShooter(
+            Pose2d target,
+            Measure<Velocity<Angle>> topSpeed,
+            Measure<Velocity<Angle>> bottomSpeed) {
+        this.target = target;
+        topRPM = topSpeed.in(RPM);
+        bottomRPM = bottomSpeed.in(RPM);
+        addRequirements(Shooter.get());
+    }
+
+    @Override
+    public void initialize() {
+        spinning = false;
+        Shooter.get().idle();
+    }
+
+    @Override
+    public void execute() {
+        if (spinning) {
+            return;
+        }
+
+        Pose2d pose = Swerve.get().getEstimatedPose();
+        ChassisSpeeds speeds = Swerve.get().getRelativeSpeeds();
+        double cos = pose.getRotation().getCos();
+        double sin = pose.getRotation().getSin();
+        double velocityX = (speeds.vxMetersPerSecond * cos) - (speeds.vyMetersPerSecond * sin);
+        double velocityY = (speeds.vxMetersPerSecond * sin) + (speeds.vyMetersPerSecond * cos);
+
+        double deltaX = target.getX() - pose.getX();
+        double deltaY = target.getY() - pose.getY();
+        double distance = Math.hypot(deltaX, deltaY);
+        double closingSpeed =
+                distance < 1e-6 ? 0 : ((deltaX * velocityX) + (deltaY * velocityY)) / distance;
+
+        double timeLeft = timeToDrive(distance, closingSpeed);
+        if (timeLeft <= Shooter.get().spinUpTime(topRPM, bottomRPM) + margin) {
+            Shooter.get().setVelocity(topRPM, bottomRPM);
+            spinning = true;
+        }
+
+        Logger.recordOutput("PreSpinShooter/TimeLeftSeconds", timeLeft);
+    }
+
+    /**
+     * @param closingSpeed How fast the robot is already driving toward the end, in meters per
+     *     second
+     * @return Seconds to drive the distance and stop, at the same limits the auto paths use
+     */
+    static double timeToDrive(double distance, double closingSpeed) {
+        // Driving away counts as starting from rest, so this errs on the side of spinning up early
+        CURRENT.position = 0;
+        CURRENT.velocity =
+                MathUtil.clamp(
+                        closingSpeed,
+                        0,
+                        RobotConstants.MAX_LINEAR_SPEED.in(MetersPerSecond)
+                                * AutoConstants.PATH_CONSTRAINT_SCALE);
+        GOAL.position = distance;
+        GOAL.velocity = 0;
+        DRIVE_PROFILE.calculate(0, CURRENT, GOAL);
+        return DRIVE_PROFILE.totalTime();
+    }
+}
@@ -0,0 +1,32 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.commands.Shooter;
+
+import static com.koibots.robot.subsystems.Subsystems.Shooter;
+import static com.koibots.robot.subsystems.Subsystems.Swerve;
+
+import com.koibots.robot.subsystems.shooter.ShotCalculator;
+import edu.wpi.first.wpilibj2.command.Command;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Keeps the shooter at the speaker shot speeds for wherever the robot is, leading the shot if it's
+ * moving, until interrupted.
+ */
+public class TrackSpeaker extends Command {
+    private final ShotCalculator shot = new ShotCalculator();
+
+    public TrackSpeaker() {
+        addRequirements(Shooter.get());
+    }
+
+    @Override
+    public void execute() {
+        shot.update(Swerve.get().getEstimatedPose(), Swerve.get().getRelativeSpeeds());
+        Shooter.get().setVelocity(shot.getTopSpeed(), shot.getBottomSpeed());
+
+        Logger.recordOutput("TrackSpeaker/DistanceMeters", shot.getDistance());
+        Logger.recordOutput("TrackSpeaker/InRange", shot.inRange());
+    }
+}
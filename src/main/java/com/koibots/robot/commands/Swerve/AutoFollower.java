@@ -4,42 +4,167 @@
 package com.koibots.robot.commands.Swerve;
 
 import static com.koibots.robot.subsystems.Subsystems.Swerve;
+import static edu.wpi.first.units.Units.Meters;
 
-import com.choreo.lib.ChoreoTrajectory;
+import com.koibots.lib.trajectory.Trajectory;
+import com.koibots.lib.trajectory.TrajectorySampler;
+import com.koibots.robot.Constants.AutoConstants;
+import com.koibots.robot.autos.AutoPrebuilder;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import org.littletonrobotics.junction.Logger;
 
-public class AutoFollower extends Command {
-    private final ChoreoTrajectory trajectory;
-    private double initialTime;
+/**
+ * Follows a trajectory with the sampled velocities as feedforward and the drive's x, y and theta
+ * controllers correcting the remaining error.
+ */
+public class AutoFollower extends Command implements AutoPrebuilder.Warmable {
+    private final TrajectorySampler sampler;
+    private final boolean resetOdometry;
+    private final boolean stopAtEnd;
+    private double startTime;
 
-    public AutoFollower(ChoreoTrajectory trajectory, boolean isRed) {
-        if (isRed) {
-            this.trajectory = trajectory.flipped();
-        } else {
-            this.trajectory = trajectory;
+    private final double[] setpoint = new double[3]; // x, y, heading
+    private double maxTranslationError;
+    private double squaredTranslationErrorSum;
+    private int errorSamples;
+
+    // Keeps the reads in warm() from being optimized out
+    @SuppressWarnings("unused")
+    private volatile double warmedChecksum;
+
+    public AutoFollower(Trajectory trajectory, boolean isRed) {
+        this(trajectory, isRed, true);
+    }
+
+    public AutoFollower(Trajectory trajectory, boolean isRed, boolean resetOdometry) {
+        this(trajectory, isRed, resetOdometry, true);
+    }
+
+    /**
+     * @param stopAtEnd Whether to stop the drive when the trajectory ends. Trajectories that end
+     *     moving should hand off to a command that keeps driving instead.
+     */
+    public AutoFollower(
+            Trajectory trajectory, boolean isRed, boolean resetOdometry, boolean stopAtEnd) {
+        sampler =
+                new TrajectorySampler(
+                        isRed
+                                ? trajectory.flipped(AutoConstants.FIELD_LENGTH.in(Meters))
+                                : trajectory);
+        this.resetOdometry = resetOdometry;
+        this.stopAtEnd = stopAtEnd;
+
+        addRequirements(Swerve.get());
+        AutoPrebuilder.addWarmable(this);
+    }
+
+    public Trajectory getTrajectory() {
+        return sampler.getTrajectory();
+    }
+
+    @Override
+    public Pose2d prebuild(Pose2d pose) {
+        Trajectory trajectory = sampler.getTrajectory();
+        int last = trajectory.length() - 1;
+        if (last < 0) {
+            return pose;
+        }
+        return new Pose2d(
+                trajectory.getX(last),
+                trajectory.getY(last),
+                Rotation2d.fromRadians(trajectory.getHeading(last)));
+    }
+
+    /** Reads every sample so the mapped trajectory file is paged in before auto starts. */
+    @Override
+    public void warm() {
+        Trajectory trajectory = sampler.getTrajectory();
+        double sum = 0;
+        for (int a = 0; a < trajectory.length(); a++) {
+            sum +=
+                    trajectory.getTimestamp(a)
+                            + trajectory.getX(a)
+                            + trajectory.getY(a)
+                            + trajectory.getHeading(a)
+                            + trajectory.getVelocityX(a)
+                            + trajectory.getVelocityY(a)
+                            + trajectory.getAngularVelocity(a);
         }
+        warmedChecksum = sum;
     }
 
     @Override
     public void initialize() {
-        initialTime = Logger.getRealTimestamp();
-        Swerve.get().resetOdometry(trajectory.getInitialPose());
+        startTime = Timer.getFPGATimestamp();
+
+        if (resetOdometry) {
+            sampler.sample(0);
+            Swerve.get()
+                    .resetOdometry(
+                            new Pose2d(
+                                    sampler.x, sampler.y, Rotation2d.fromRadians(sampler.heading)));
+        }
+
+        Swerve.get().xController.reset();
+        Swerve.get().yController.reset();
+        Swerve.get().thetaController.reset();
+
+        maxTranslationError = 0;
+        squaredTranslationErrorSum = 0;
+        errorSamples = 0;
     }
 
     @Override
     public void execute() {
-        var nextState = trajectory.sample(Logger.getRealTimestamp() - initialTime + 20000);
+        sampler.sample(Timer.getFPGATimestamp() - startTime);
         Pose2d currentPose = Swerve.get().getEstimatedPose();
+        double currentHeading = currentPose.getRotation().getRadians();
 
         Swerve.get()
-                .driveRobotRelative(
-                        ChassisSpeeds.fromFieldRelativeSpeeds(
-                                (nextState.x - currentPose.getX()) / 0.02,
-                                (nextState.y - currentPose.getY()) / 0.02,
-                                (nextState.heading - currentPose.getRotation().getRadians()) / 0.02,
-                                Swerve.get().getGyroAngle()));
+                .driveFieldRelative(
+                        sampler.velocityX
+                                + Swerve.get().xController.calculate(currentPose.getX(), sampler.x),
+                        sampler.velocityY
+                                + Swerve.get().yController.calculate(currentPose.getY(), sampler.y),
+                        sampler.angularVelocity
+                                + Swerve.get()
+                                        .thetaController
+                                        .calculate(currentHeading, sampler.heading));
+
+        double translationError =
+                Math.hypot(sampler.x - currentPose.getX(), sampler.y - currentPose.getY());
+        maxTranslationError = Math.max(maxTranslationError, translationError);
+        squaredTranslationErrorSum += translationError * translationError;
+        errorSamples++;
+
+        setpoint[0] = sampler.x;
+        setpoint[1] = sampler.y;
+        setpoint[2] = sampler.heading;
+        Logger.recordOutput("AutoFollower/Setpoint", setpoint);
+        Logger.recordOutput("AutoFollower/TranslationErrorMeters", translationError);
+        Logger.recordOutput(
+                "AutoFollower/HeadingErrorRad",
+                MathUtil.angleModulus(sampler.heading - currentHeading));
+    }
+
+    @Override
+    public boolean isFinished() {
+        return Timer.getFPGATimestamp() - startTime >= sampler.getTrajectory().getTotalTime();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        if (stopAtEnd || interrupted) {
+            Swerve.get().stop();
+        }
+
+        Logger.recordOutput("AutoFollower/MaxTranslationErrorMeters", maxTranslationError);
+        Logger.recordOutput(
+                "AutoFollower/RMSTranslationErrorMeters",
+                errorSamples == 0 ? 0 : Math.sqrt(squaredTranslationErrorSum / errorSamples));
     }
 }
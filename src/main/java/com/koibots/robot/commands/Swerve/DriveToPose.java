@@ -0,0 +1,266 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.commands.Swerve;
+
+import static com.koibots.robot.subsystems.Subsystems.Swerve;
+import static edu.wpi.first.units.Units.*;
+
+import com.koibots.robot.Constants.AutoConstants;
+import com.koibots.robot.Constants.ControlConstants;
+import com.koibots.robot.Constants.RobotConstants;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.controller.PIDController;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj2.command.Command;
+import java.util.function.Supplier;
+import org.littletonrobotics.junction.Logger;
+
+/**
+ * Drives straight to a pose in the least time the drive allows. A setpoint is moved toward the goal
+ * every loop along trapezoidal profiles, one for the distance left and one for the heading, and
+ * the drive follows it with the setpoint velocity as feedforward. Rotating uses up some of the
+ * wheels' speed, so the translation profile only gets what the heading profile leaves over. If the
+ * robot falls too far behind the setpoint, the plan restarts from the robot's measured pose and
+ * velocity. It finishes once the robot has settled at the goal.
+ */
+public class DriveToPose extends Command {
+    private static final double LOOP_PERIOD = 0.02;
+
+    private final Supplier<Pose2d> goalSupplier;
+    private Pose2d goal;
+
+    private final double maxLinearVelocity =
+            RobotConstants.MAX_LINEAR_SPEED.in(MetersPerSecond)
+                    * AutoConstants.PATH_CONSTRAINT_SCALE;
+    private final double maxLinearAcceleration =
+            RobotConstants.MAX_LINEAR_ACCELERATION.in(MetersPerSecondPerSecond)
+                    * AutoConstants.PATH_CONSTRAINT_SCALE;
+    private final double driveRadius = ControlConstants.MODULE_LOCATIONS[0].getNorm();
+
+    private final double maxAngularVelocity =
+            RobotConstants.MAX_ANGULAR_VELOCITY.in(RadiansPerSecond)
+                    * AutoConstants.PATH_CONSTRAINT_SCALE;
+    private final double maxAngularAcceleration =
+            RobotConstants.MAX_ANGULAR_ACCELERATION.in(RadiansPerSecond.per(Second))
+                    * AutoConstants.PATH_CONSTRAINT_SCALE;
+
+    private final PIDController xController;
+    private final PIDController yController;
+    private final PIDController thetaController;
+    private final Debouncer settled =
+            new Debouncer(
+                    ControlConstants.AUTO_SETTLE_TIME.in(Seconds), Debouncer.DebounceType.kRising);
+
+    private double setpointX;
+    private double setpointY;
+    private double setpointVelocityX;
+    private double setpointVelocityY;
+    private double setpointHeading;
+    private double setpointAngularVelocity;
+    private boolean setpointAtGoal;
+    private int replans;
+
+    // Result of the last profile step
+    private double stepPosition;
+    private double stepVelocity;
+
+    private final double[] setpoint = new double[3]; // x, y, heading
+
+    public DriveToPose(Pose2d goal) {
+        this(() -> goal);
+    }
+
+    /**
+     * @param goal Called once when the command starts, so the goal can depend on where the robot is
+     */
+    public DriveToPose(Supplier<Pose2d> goal) {
+        goalSupplier = goal;
+
+        xController =
+                new PIDController(
+                        ControlConstants.DRIVE_TO_POSE_TRANSLATION_PID.kP,
+                        ControlConstants.DRIVE_TO_POSE_TRANSLATION_PID.kI,
+                        ControlConstants.DRIVE_TO_POSE_TRANSLATION_PID.kD);
+        yController =
+                new PIDController(
+                        ControlConstants.DRIVE_TO_POSE_TRANSLATION_PID.kP,
+                        ControlConstants.DRIVE_TO_POSE_TRANSLATION_PID.kI,
+                        ControlConstants.DRIVE_TO_POSE_TRANSLATION_PID.kD);
+        thetaController =
+                new PIDController(
+                        ControlConstants.DRIVE_TO_POSE_ROTATION_PID.kP,
+                        ControlConstants.DRIVE_TO_POSE_ROTATION_PID.kI,
+                        ControlConstants.DRIVE_TO_POSE_ROTATION_PID.kD);
+        thetaController.enableContinuousInput(-Math.PI, Math.PI);
+
+        addRequirements(Swerve.get());
+    }
+
+    @Override
+    public void initialize() {
+        goal = goalSupplier.get();
+
+        xController.reset();
+        yController.reset();
+        thetaController.reset();
+        settled.calculate(false);
+
+        replans = 0;
+        replan(Swerve.get().getEstimatedPose());
+    }
+
+    /** Restarts the setpoint from the robot's measured pose and velocity. */
+    private void replan(Pose2d pose) {
+        ChassisSpeeds speeds = Swerve.get().getRelativeSpeeds();
+        double cos = pose.getRotation().getCos();
+        double sin = pose.getRotation().getSin();
+
+        setpointX = pose.getX();
+        setpointY = pose.getY();
+        setpointVelocityX = (speeds.vxMetersPerSecond * cos) - (speeds.vyMetersPerSecond * sin);
+        setpointVelocityY = (speeds.vxMetersPerSecond * sin) + (speeds.vyMetersPerSecond * cos);
+        setpointHeading = pose.getRotation().getRadians();
+        setpointAngularVelocity = speeds.omegaRadiansPerSecond;
+        setpointAtGoal = false;
+
+        replans++;
+        Logger.recordOutput("DriveToPose/Replans", replans);
+    }
+
+    @Override
+    public void execute() {
+        Pose2d pose = Swerve.get().getEstimatedPose();
+        if (Math.hypot(setpointX - pose.getX(), setpointY - pose.getY())
+                > AutoConstants.REPLANNING_THRESHOLD.in(Meters)) {
+            replan(pose);
+        }
+
+        // Heading, unwrapped so the profile takes the short way around
+        double headingLeft =
+                MathUtil.angleModulus(goal.getRotation().getRadians() - setpointHeading);
+        step(
+                setpointHeading,
+                setpointAngularVelocity,
+                setpointHeading + headingLeft,
+                0,
+                maxAngularVelocity,
+                maxAngularAcceleration);
+        setpointHeading = MathUtil.angleModulus(stepPosition);
+        setpointAngularVelocity = stepVelocity;
+
+        // Translation, along the line from the setpoint to the goal
+        double deltaX = goal.getX() - setpointX;
+        double deltaY = goal.getY() - setpointY;
+        double distance = Math.hypot(deltaX, deltaY);
+        boolean translationDone = true;
+        if (distance > 1e-6) {
+            double directionX = deltaX / distance;
+            double directionY = deltaY / distance;
+
+            step(
+                    0,
+                    (setpointVelocityX * directionX) + (setpointVelocityY * directionY),
+                    distance,
+                    0,
+                    maxLinearVelocity - (Math.abs(setpointAngularVelocity) * driveRadius),
+                    maxLinearAcceleration);
+
+            setpointX += stepPosition * directionX;
+            setpointY += stepPosition * directionY;
+            setpointVelocityX = stepVelocity * directionX;
+            setpointVelocityY = stepVelocity * directionY;
+            translationDone = stepPosition >= distance - 1e-6;
+        } else {
+            setpointVelocityX = 0;
+            setpointVelocityY = 0;
+        }
+        setpointAtGoal =
+                translationDone
+                        && Math.abs(headingLeft) < 1e-6
+                        && Math.abs(setpointAngularVelocity) < 1e-6;
+
+        double currentHeading = pose.getRotation().getRadians();
+        Swerve.get()
+                .driveFieldRelative(
+                        setpointVelocityX + xController.calculate(pose.getX(), setpointX),
+                        setpointVelocityY + yController.calculate(pose.getY(), setpointY),
+                        setpointAngularVelocity
+                                + thetaController.calculate(currentHeading, setpointHeading));
+
+        setpoint[0] = setpointX;
+        setpoint[1] = setpointY;
+        setpoint[2] = setpointHeading;
+        Logger.recordOutput("DriveToPose/Setpoint", setpoint);
+        Logger.recordOutput(
+                "DriveToPose/DistanceToGoalMeters",
+                Math.hypot(goal.getX() - pose.getX(), goal.getY() - pose.getY()));
+    }
+
+    /**
+     * Moves one loop along a trapezoidal profile toward a goal, accelerating as hard as allowed
+     * until it has to brake to reach the goal at the goal velocity. Done by hand rather than with a
+     * TrapezoidProfile since the translation limit changes every loop, and a profile would have to
+     * be built for each one. The result goes in stepPosition and stepVelocity.
+     */
+    private void step(
+            double position,
+            double velocity,
+            double goalPosition,
+            double goalVelocity,
+            double maxVelocity,
+            double maxAcceleration) {
+        // Worked out in the direction of the goal
+        double direction = goalPosition >= position ? 1 : -1;
+        double distance = (goalPosition - position) * direction;
+        velocity *= direction;
+        goalVelocity *= direction;
+
+        // The fastest it can go and still slow down to the goal velocity by the goal
+        double targetVelocity =
+                Math.min(
+                        maxVelocity,
+                        Math.sqrt(
+                                (goalVelocity * goalVelocity)
+                                        + (2 * maxAcceleration * distance)));
+        double velocityChange = maxAcceleration * LOOP_PERIOD;
+        double nextVelocity =
+                MathUtil.clamp(
+                        targetVelocity, velocity - velocityChange, velocity + velocityChange);
+        double moved = (velocity + nextVelocity) / 2 * LOOP_PERIOD;
+        if (moved >= distance) {
+            moved = distance;
+            nextVelocity = goalVelocity;
+        }
+
+        stepPosition = position + (moved * direction);
+        stepVelocity = nextVelocity * direction;
+    }
+
+    @Override
+    public boolean isFinished() {
+        Pose2d pose = Swerve.get().getEstimatedPose();
+        boolean atGoal =
+                setpointAtGoal
+                        && Math.hypot(goal.getX() - pose.getX(), goal.getY() - pose.getY())
+                                <= ControlConstants.ALLOWED_AUTO_ERROR.in(Meters)
+                        && Math.abs(
+                                        MathUtil.angleModulus(
+                                                goal.getRotation().getRadians()
+                                                        - pose.getRotation().getRadians()))
+                                <= ControlConstants.ALLOWED_AUTO_HEADING_ERROR.in(Radians);
+
+        ChassisSpeeds speeds = Swerve.get().getRelativeSpeeds();
+        return settled.calculate(
+                atGoal
+                        && Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond)
+                                <= ControlConstants.AUTO_SETTLE_SPEED.in(MetersPerSecond));
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        Swerve.get().stop();
+    }
+}
@@ -12,8 +12,6 @@ import com.koibots.robot.Constants.RobotConstants;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.filter.SlewRateLimiter;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.wpilibj2.command.Command;
 import java.util.function.BooleanSupplier;
 import java.util.function.DoubleSupplier;
@@ -67,11 +65,13 @@ public class FieldOrientedDrive extends Command {
             double vxInput = vxLimiter.calculate(vxSupplier.getAsDouble());
             double vyInput = vyLimiter.calculate(vySupplier.getAsDouble());
 
+            double inputMagnitude = Math.hypot(vxInput, vyInput);
             double linearMagnitude =
-                    MathUtil.applyDeadband(
-                            Math.hypot(vxInput, vyInput), ControlConstants.DEADBAND, 1);
+                    MathUtil.applyDeadband(inputMagnitude, ControlConstants.DEADBAND, 1);
 
-            Rotation2d linearDirection = new Rotation2d(vxInput, vyInput);
+            // Same as new Rotation2d(vxInput, vyInput), without the allocation
+            double directionCos = (inputMagnitude > 1e-6) ? vxInput / inputMagnitude : 1.0;
+            double directionSin = (inputMagnitude > 1e-6) ? vyInput / inputMagnitude : 0.0;
 
             double angularVelocity;
 
@@ -98,19 +98,16 @@ public class FieldOrientedDrive extends Command {
             linearMagnitude *= linearMagnitude * Math.signum(linearMagnitude);
             angularVelocity *= angularVelocity * angularVelocity;
 
-            ChassisSpeeds speeds =
-                    ChassisSpeeds.fromFieldRelativeSpeeds(
+            Swerve.get()
+                    .driveFieldRelative(
                             linearMagnitude
-                                    * linearDirection.getCos()
+                                    * directionCos
                                     * RobotConstants.MAX_LINEAR_SPEED.in(MetersPerSecond),
                             linearMagnitude
-                                    * linearDirection.getSin()
+                                    * directionSin
                                     * RobotConstants.MAX_LINEAR_SPEED.in(MetersPerSecond),
                             angularVelocity
-                                    * RobotConstants.MAX_ANGULAR_VELOCITY.in(RadiansPerSecond),
-                            Swerve.get().getEstimatedPose().getRotation());
-
-            Swerve.get().driveRobotRelative(speeds);
+                                    * RobotConstants.MAX_ANGULAR_VELOCITY.in(RadiansPerSecond));
         } else { // Set Cross
             Swerve.get().setCross();
         }
@@ -5,6 +5,7 @@ package com.koibots.robot.subsystems.Indexer;
 
 import static edu.wpi.first.units.Units.*;
 
+import com.koibots.lib.util.LoopProfiler;
 import com.koibots.robot.Constants;
 import com.koibots.robot.Robot;
 import edu.wpi.first.math.controller.PIDController;
@@ -22,6 +23,9 @@ public class Indexer extends SubsystemBase {
     private final PIDController feedback;
 
     private Measure<Velocity<Angle>> setpoint = RPM.of(0);
+    private final MutableMeasure<Voltage> voltage = MutableMeasure.zero(Volts);
+    private final LoopProfiler.Phase periodicProfile = LoopProfiler.register("Indexer");
+    private final LoopProfiler.Phase inputsProfile = LoopProfiler.register("Indexer/Inputs");
 
     private int inverted = 1;
     private boolean sensorEnabled = true;
@@ -43,19 +47,24 @@ public class Indexer extends SubsystemBase {
 
     @Override
     public void periodic() {
+        periodicProfile.start();
+        inputsProfile.start();
         io.updateInputs(inputs);
         inputs.setpoint = setpoint.in(RPM);
         Logger.processInputs("Subsystems/Indexer", inputs);
-
-        io.setVoltage(
-                Volts.of(
-                        Math.max(
-                                Math.min(
-                                        (feedback.calculate(inputs.velocity, setpoint.in(RPM))
-                                                        + feedforward.calculate(setpoint.in(RPM)))
-                                                * (12.0 / 11000.0),
-                                        12.0),
-                                -12.0)));
+        inputsProfile.stop();
+
+        voltage.mut_setMagnitude(
+                Math.max(
+                        Math.min(
+                                (feedback.calculate(inputs.velocity, setpoint.in(RPM))
+                                                + feedforward.calculate(setpoint.in(RPM)))
+                                        * (12.0 / 11000.0),
+                                12.0),
+                        -12.0));
+        io.setVoltage(voltage);
+
+        periodicProfile.stop();
     }
 
     public void setVelocity(Measure<Velocity<Angle>> velocity) {
@@ -3,8 +3,6 @@
 
 package com.koibots.robot.subsystems.Indexer;
 
-import static edu.wpi.first.units.Units.*;
-
 import edu.wpi.first.units.*;
 import org.littletonrobotics.junction.AutoLog;
 
@@ -16,8 +14,8 @@ public interface IndexerIO {
 
         public boolean sensor = false;
 
-        public Measure<Current> current = Amps.of(0);
-        public Measure<Voltage> voltage = Volts.of(0);
+        public double currentAmps = 0;
+        public double appliedVolts = 0;
     }
 
     void updateInputs(IndexerIOInputs inputs);
@@ -16,17 +16,19 @@ public class IndexerIOSim implements IndexerIO {
 
     private final FlywheelSim sim = new FlywheelSim(DCMotor.getNEO(1), 1, 1);
 
-    private Measure<Voltage> volts = Volts.of(0);
+    private double appliedVolts = 0;
 
     @Override
     public void updateInputs(IndexerIOInputs inputs) {
         inputs.velocity = sim.getAngularVelocityRPM();
+        inputs.currentAmps = sim.getCurrentDrawAmps();
+        inputs.appliedVolts = appliedVolts;
     }
 
     @Override
     public void setVoltage(Measure<Voltage> volts) {
-        sim.setInputVoltage(volts.in(Volts));
-        this.volts = volts;
+        appliedVolts = volts.in(Volts);
+        sim.setInputVoltage(appliedVolts);
     }
 
     public Measure<Velocity<Angle>> getVelocity() {
@@ -34,6 +36,6 @@ public class IndexerIOSim implements IndexerIO {
     }
 
     public Measure<Voltage> getVoltage() {
-        return volts;
+        return Volts.of(appliedVolts);
     }
 }
@@ -47,8 +47,8 @@ public class IndexerIOSparkMax implements IndexerIO {
     @Override
     public void updateInputs(IndexerIOInputs inputs) {
         inputs.velocity = encoder.getVelocity();
-        inputs.voltage = Volts.of(motor.getBusVoltage()).times(motor.getAppliedOutput());
-        inputs.current = Amps.of(motor.getOutputCurrent());
+        inputs.appliedVolts = motor.getBusVoltage() * motor.getAppliedOutput();
+        inputs.currentAmps = motor.getOutputCurrent();
         inputs.sensor = !proximititySwitch.get();
     }
 
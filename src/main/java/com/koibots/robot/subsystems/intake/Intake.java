@@ -5,6 +5,7 @@ package com.koibots.robot.subsystems.intake;
 
 import static edu.wpi.first.units.Units.*;
 
+import com.koibots.lib.util.LoopProfiler;
 import com.koibots.robot.Constants;
 import com.koibots.robot.Robot;
 import edu.wpi.first.math.controller.PIDController;
@@ -19,6 +20,9 @@ public class Intake extends SubsystemBase {
     private final IntakeIO io;
     private final IntakeIOInputsAutoLogged inputs = new IntakeIOInputsAutoLogged();
     private Measure<Velocity<Angle>> setpoint = RPM.of(0);
+    private final MutableMeasure<Voltage> voltage = MutableMeasure.zero(Volts);
+    private final LoopProfiler.Phase periodicProfile = LoopProfiler.register("Intake");
+    private final LoopProfiler.Phase inputsProfile = LoopProfiler.register("Intake/Inputs");
 
     public Intake() {
         io = Robot.isReal() ? new IntakeIOSparkMax() : new IntakeIOSim();
@@ -31,19 +35,24 @@ public class Intake extends SubsystemBase {
 
     @Override
     public void periodic() {
+        periodicProfile.start();
+        inputsProfile.start();
         io.updateInputs(inputs);
         inputs.setpoint = setpoint.in(RPM);
         Logger.processInputs("Subsystems/Intake", inputs);
+        inputsProfile.stop();
 
-        io.setVoltage(
-                Volts.of(
-                        Math.max(
-                                Math.min(
-                                        (feedback.calculate(inputs.velocity, setpoint.in(RPM))
-                                                        + feedforward.calculate(setpoint.in(RPM)))
-                                                * (12.0 / 5676.0),
-                                        12.0),
-                                -12.0)));
+        voltage.mut_setMagnitude(
+                Math.max(
+                        Math.min(
+                                (feedback.calculate(inputs.velocity, setpoint.in(RPM))
+                                                + feedforward.calculate(setpoint.in(RPM)))
+                                        * (12.0 / 5676.0),
+                                12.0),
+                        -12.0));
+        io.setVoltage(voltage);
+
+        periodicProfile.stop();
     }
 
     public void setVelocity(Measure<Velocity<Angle>> velocity) {
@@ -3,8 +3,6 @@
 
 package com.koibots.robot.subsystems.intake;
 
-import static edu.wpi.first.units.Units.*;
-
 import edu.wpi.first.units.*;
 import org.littletonrobotics.junction.AutoLog;
 
@@ -15,8 +13,8 @@ public interface IntakeIO {
         public double setpoint = 0;
         public double velocity = 0;
 
-        public Measure<Current> current = Amps.of(0);
-        public Measure<Voltage> voltage = Volts.of(0);
+        public double currentAmps = 0;
+        public double appliedVolts = 0;
     }
 
     /* Updates the set of loggable inputs. */
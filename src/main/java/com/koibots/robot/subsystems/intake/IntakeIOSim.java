@@ -15,7 +15,7 @@ public class IntakeIOSim implements IntakeIO {
 
     private final DCMotorSim sim = new DCMotorSim(DCMotor.getNEO(1), 1, 0.025);
 
-    private Measure<Voltage> appliedVolts = Volts.of(0);
+    private double appliedVolts = 0;
 
     @Override
     public void updateInputs(IntakeIOInputs inputs) {
@@ -23,13 +23,13 @@ public class IntakeIOSim implements IntakeIO {
 
         inputs.velocity = sim.getAngularVelocityRPM();
 
-        inputs.current = Amps.of(sim.getCurrentDrawAmps());
-        inputs.voltage = appliedVolts;
+        inputs.currentAmps = sim.getCurrentDrawAmps();
+        inputs.appliedVolts = appliedVolts;
     }
 
     @Override
     public void setVoltage(Measure<Voltage> volts) {
-        sim.setInputVoltage(volts.in(Volts));
-        appliedVolts = volts;
+        appliedVolts = volts.in(Volts);
+        sim.setInputVoltage(appliedVolts);
     }
 }
@@ -40,8 +40,8 @@ public class IntakeIOSparkMax implements IntakeIO {
     public void updateInputs(IntakeIOInputs inputs) {
         inputs.velocity = encoder.getVelocity();
 
-        inputs.current = Amps.of(motor.getOutputCurrent());
-        inputs.voltage = Volts.of(motor.getBusVoltage()).times(motor.getAppliedOutput());
+        inputs.currentAmps = motor.getOutputCurrent();
+        inputs.appliedVolts = motor.getBusVoltage() * motor.getAppliedOutput();
     }
 
     @Override
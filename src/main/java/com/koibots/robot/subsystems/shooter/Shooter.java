@@ -5,8 +5,12 @@ package com.koibots.robot.subsystems.shooter;
 
 import static edu.wpi.first.units.Units.*;
 
+import com.koibots.lib.util.LoopProfiler;
+import com.koibots.robot.Constants.ControlConstants;
 import com.koibots.robot.Constants.SensorConstants;
+import com.koibots.robot.Constants.SetpointConstants;
 import com.koibots.robot.Robot;
+import edu.wpi.first.math.filter.LinearFilter;
 import edu.wpi.first.units.*;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import java.util.Arrays;
@@ -17,8 +21,26 @@ public class Shooter extends SubsystemBase {
     private final ShooterIO io;
     private final ShooterIOInputsAutoLogged inputs = new ShooterIOInputsAutoLogged();
 
-    private Measure<Velocity<Angle>> topSetpoint = RPM.of(0);
-    private Measure<Velocity<Angle>> bottomSetpoint = RPM.of(0);
+    private double topSetpoint = 0; // RPM
+    private double bottomSetpoint = 0;
+    // Reused for setpoints that change every loop
+    private final MutableMeasure<Velocity<Angle>> topTarget = MutableMeasure.zero(RPM);
+    private final MutableMeasure<Velocity<Angle>> bottomTarget = MutableMeasure.zero(RPM);
+    private final LoopProfiler.Phase periodicProfile = LoopProfiler.register("Shooter");
+
+    private static final double LOOP_PERIOD = 0.02;
+    // RPM per second, averaged over a few loops since the encoders are noisy
+    private final LinearFilter topAccelerationFilter = LinearFilter.movingAverage(3);
+    private final LinearFilter bottomAccelerationFilter = LinearFilter.movingAverage(3);
+    private double topAcceleration = 0;
+    private double bottomAcceleration = 0;
+    private double lastTopVelocity = 0;
+    private double lastBottomVelocity = 0;
+    private final double spinUpRate = ControlConstants.SHOOTER_SPIN_UP_RATE.in(RPM.per(Second));
+    private final ShotDetector shotDetector =
+            new ShotDetector(
+                    SensorConstants.SHOT_DETECTION_SPEED_DIP,
+                    SensorConstants.SHOT_DETECTION_CURRENT_RISE.in(Amps));
 
     public Shooter() {
         io = Robot.isReal() ? new ShooterIOSparkMax() : new ShooterIOSim();
@@ -26,31 +48,108 @@ public class Shooter extends SubsystemBase {
 
     @Override
     public void periodic() {
+        periodicProfile.start();
         io.updateInputs(inputs);
-        inputs.topSetpoint = topSetpoint.in(RPM);
-        inputs.bottomSetpoint = bottomSetpoint.in(RPM);
+        inputs.topSetpoint = topSetpoint;
+        inputs.bottomSetpoint = bottomSetpoint;
         Logger.processInputs("Subsystems/Shooter", inputs);
+
+        topAcceleration =
+                topAccelerationFilter.calculate(
+                        (inputs.topVelocity - lastTopVelocity) / LOOP_PERIOD);
+        bottomAcceleration =
+                bottomAccelerationFilter.calculate(
+                        (inputs.bottomVelocity - lastBottomVelocity) / LOOP_PERIOD);
+        lastTopVelocity = inputs.topVelocity;
+        lastBottomVelocity = inputs.bottomVelocity;
+        periodicProfile.stop();
     }
 
     public void setVelocity(
             Measure<Velocity<Angle>> topSpeed, Measure<Velocity<Angle>> bottomSpeed) {
         io.setVelocity(topSpeed, bottomSpeed);
-        topSetpoint = topSpeed;
-        bottomSetpoint = bottomSpeed;
-        
-        System.out.println("Top Speed - " + topSpeed.in(RPM));
-        System.out.println("Bottom Speed - " + bottomSpeed.in(RPM));
-        System.out.println("Top Setpoint - " + topSetpoint.in(RPM));
-        System.out.println("Bottom Setpoint - " + bottomSetpoint.in(RPM));
+        topSetpoint = topSpeed.in(RPM);
+        bottomSetpoint = bottomSpeed.in(RPM);
+    }
+
+    /** Sets the speeds in RPM without allocating, for setpoints that are updated every loop. */
+    public void setVelocity(double topRPM, double bottomRPM) {
+        setVelocity(topTarget.mut_replace(topRPM, RPM), bottomTarget.mut_replace(bottomRPM, RPM));
+    }
+
+    /** Holds the idle speeds, which keep the flywheels partway spun up between shots. */
+    public void idle() {
+        setVelocity(
+                SetpointConstants.SHOOTER_SPEEDS.IDLE.topSpeed,
+                SetpointConstants.SHOOTER_SPEEDS.IDLE.bottomSpeed);
+    }
+
+    /** @return Seconds until both flywheels could reach the given speeds from where they are now */
+    public double spinUpTime(double topRPM, double bottomRPM) {
+        return Math.max(
+                        Math.abs(topRPM - inputs.topVelocity),
+                        Math.abs(bottomRPM - inputs.bottomVelocity))
+                / spinUpRate;
     }
 
     public boolean atSetpoint() {
-        return RPM.of(inputs.topVelocity).isNear(topSetpoint, SensorConstants.SHOOTER_ALLOWED_ERROR)
-                && RPM.of(inputs.bottomVelocity)
-                        .isNear(bottomSetpoint, SensorConstants.SHOOTER_ALLOWED_ERROR);
+        return nearSetpoint(inputs.topVelocity, topSetpoint)
+                && nearSetpoint(inputs.bottomVelocity, bottomSetpoint);
+    }
+
+    /**
+     * Extrapolates how fast each flywheel is recovering, so a note can be fed early enough to reach
+     * the flywheels right as they're back at speed.
+     *
+     * @return If both flywheels will be at their setpoints after the given time
+     */
+    public boolean atSetpointAfter(double seconds) {
+        return nearSetpoint(
+                        predict(inputs.topVelocity, topAcceleration, topSetpoint, seconds),
+                        topSetpoint)
+                && nearSetpoint(
+                        predict(inputs.bottomVelocity, bottomAcceleration, bottomSetpoint, seconds),
+                        bottomSetpoint);
+    }
+
+    private static double predict(
+            double velocity, double acceleration, double setpoint, double seconds) {
+        double predicted = velocity + (acceleration * seconds);
+        // The controller settles at the setpoint instead of carrying on past it
+        if ((velocity - setpoint) * (predicted - setpoint) < 0) {
+            return setpoint;
+        }
+        return predicted;
+    }
+
+    private static boolean nearSetpoint(double velocity, double setpoint) {
+        // Same check as Measure.isNear(), without wrapping the velocities in new Measures
+        return Math.abs(velocity - setpoint)
+                <= Math.abs(setpoint * SensorConstants.SHOOTER_ALLOWED_ERROR);
+    }
+
+    /** Starts watching for a shot from the flywheels' current speeds. Call as the note is fed. */
+    public void startShotDetection() {
+        shotDetector.start(
+                inputs.topVelocity,
+                inputs.bottomVelocity,
+                inputs.topCurrentAmps,
+                inputs.bottomCurrentAmps);
+    }
+
+    /**
+     * @return If either flywheel looks like a note is going through it, by slowing down or drawing
+     *     a current spike since {@link #startShotDetection()}
+     */
+    public boolean noteDetected() {
+        return shotDetector.noteDetected(
+                inputs.topVelocity,
+                inputs.bottomVelocity,
+                inputs.topCurrentAmps,
+                inputs.bottomCurrentAmps);
     }
 
     public List<Measure<Current>> getCurrent() {
-        return Arrays.asList(inputs.topCurrent, inputs.bottomCurrent);
+        return Arrays.asList(Amps.of(inputs.topCurrentAmps), Amps.of(inputs.bottomCurrentAmps));
     }
 }
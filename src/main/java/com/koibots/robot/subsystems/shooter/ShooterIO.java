@@ -3,8 +3,6 @@
 
 package com.koibots.robot.subsystems.shooter;
 
-import static edu.wpi.first.units.Units.*;
-
 import edu.wpi.first.units.*;
 import org.littletonrobotics.junction.AutoLog;
 
@@ -14,10 +12,10 @@ public interface ShooterIO {
         public double topVelocity = 0;
         public double bottomVelocity = 0;
 
-        public Measure<Current> topCurrent = Amps.of(0);
-        public Measure<Current> bottomCurrent = Amps.of(0);
-        public Measure<Voltage> topVoltage = Volts.of(0);
-        public Measure<Voltage> bottomVoltage = Volts.of(0);
+        public double topCurrentAmps = 0;
+        public double bottomCurrentAmps = 0;
+        public double topAppliedVolts = 0;
+        public double bottomAppliedVolts = 0;
 
         public double topSetpoint = 0;
         public double bottomSetpoint = 0;
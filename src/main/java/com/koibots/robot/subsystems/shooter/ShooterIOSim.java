@@ -50,25 +50,22 @@ public class ShooterIOSim implements ShooterIO {
         inputs.topVelocity = simTop.getAngularVelocityRPM();
         inputs.bottomVelocity = simBottom.getAngularVelocityRPM();
 
-        inputs.topCurrent = Amps.of(simTop.getCurrentDrawAmps());
-        inputs.bottomCurrent = Amps.of(simBottom.getCurrentDrawAmps());
-
-        inputs.topVoltage =
-                Volts.of(
-                        topFeedback.calculate(simTop.getAngularVelocityRPM(), topSetpoint.in(RPM))
-                                + topFeedforward.calculate(topSetpoint.in(RPM)));
-        inputs.bottomVoltage =
-                Volts.of(
-                        bottomFeedback.calculate(
-                                        simBottom.getAngularVelocityRPM(), bottomSetpoint.in(RPM))
-                                + bottomFeedforward.calculate(bottomSetpoint.in(RPM)));
+        inputs.topCurrentAmps = simTop.getCurrentDrawAmps();
+        inputs.bottomCurrentAmps = simBottom.getCurrentDrawAmps();
+
+        inputs.topAppliedVolts =
+                topFeedback.calculate(simTop.getAngularVelocityRPM(), topSetpoint.in(RPM))
+                        + topFeedforward.calculate(topSetpoint.in(RPM));
+        inputs.bottomAppliedVolts =
+                bottomFeedback.calculate(simBottom.getAngularVelocityRPM(), bottomSetpoint.in(RPM))
+                        + bottomFeedforward.calculate(bottomSetpoint.in(RPM));
 
         inputs.bottomSetpoint = bottomSetpoint.in(RPM);
         inputs.topSetpoint = topSetpoint.in(RPM);
 
-        simTop.setInputVoltage(inputs.topVoltage.in(Volts));
+        simTop.setInputVoltage(inputs.topAppliedVolts);
 
-        simBottom.setInputVoltage(inputs.bottomVoltage.in(Volts));
+        simBottom.setInputVoltage(inputs.bottomAppliedVolts);
     }
 
     @Override
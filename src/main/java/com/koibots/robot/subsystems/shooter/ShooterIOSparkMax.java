@@ -72,12 +72,11 @@ public class ShooterIOSparkMax implements ShooterIO {
         inputs.topVelocity = topEncoder.getVelocity();
         inputs.bottomVelocity = bottomEncoder.getVelocity();
 
-        inputs.topCurrent = Amps.of(topMotor.getOutputCurrent());
-        inputs.bottomCurrent = Amps.of(bottomMotor.getOutputCurrent());
+        inputs.topCurrentAmps = topMotor.getOutputCurrent();
+        inputs.bottomCurrentAmps = bottomMotor.getOutputCurrent();
 
-        inputs.topVoltage = Volts.of(topMotor.getBusVoltage()).times(topMotor.getAppliedOutput());
-        inputs.bottomVoltage =
-                Volts.of(bottomMotor.getBusVoltage()).times(bottomMotor.getAppliedOutput());
+        inputs.topAppliedVolts = topMotor.getBusVoltage() * topMotor.getAppliedOutput();
+        inputs.bottomAppliedVolts = bottomMotor.getBusVoltage() * bottomMotor.getAppliedOutput();
     }
 
     public void setVelocity(Measure<Velocity<Angle>> top, Measure<Velocity<Angle>> bottom) {
@@ -0,0 +1,165 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.shooter;
+
+import static edu.wpi.first.units.Units.Radians;
+import static edu.wpi.first.units.Units.Seconds;
+
+import com.koibots.lib.util.InterpolatingTable;
+import com.koibots.robot.Constants.AlignConstants;
+import com.koibots.robot.Constants.ControlConstants;
+import com.koibots.robot.Constants.SetpointConstants;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import java.util.Arrays;
+
+/**
+ * Finds the shooter speeds and heading for a speaker shot from wherever the robot is, by
+ * interpolating the calibrated shot table at the distance to the speaker. Meant to be updated
+ * every loop from the estimated pose.
+ *
+ * <p>When the robot is moving, the note keeps the robot's velocity after it leaves, so it's aimed
+ * at a virtual target offset from the speaker by the robot's velocity times the flight time. The
+ * flight time depends on the distance to the virtual target, so the two are solved together by
+ * iterating. Everything is solved from where the robot will be when the note actually leaves,
+ * one release latency after the indexer starts feeding.
+ *
+ * <p>Poses are alliance relative, like the pose estimator's, so the speaker is in the same place
+ * for both alliances.
+ */
+public class ShotCalculator {
+    private static final int SHOT_TABLE_ROWS =
+            SetpointConstants.USE_ESTIMATED_SHOT_ROWS
+                    ? SetpointConstants.SHOT_TABLE_DISTANCES.length
+                    : SetpointConstants.MEASURED_SHOT_ROWS;
+    private static final InterpolatingTable SHOT_TABLE =
+            new InterpolatingTable(
+                    Arrays.copyOf(SetpointConstants.SHOT_TABLE_DISTANCES, SHOT_TABLE_ROWS),
+                    Arrays.copyOf(SetpointConstants.SHOT_TABLE_TOP_SPEEDS, SHOT_TABLE_ROWS),
+                    Arrays.copyOf(SetpointConstants.SHOT_TABLE_BOTTOM_SPEEDS, SHOT_TABLE_ROWS),
+                    Arrays.copyOf(SetpointConstants.SHOT_TABLE_FLIGHT_TIMES, SHOT_TABLE_ROWS));
+    private static final int ITERATIONS = 3; // Converges well under a centimeter at driving speeds
+    private static final ChassisSpeeds STOPPED = new ChassisSpeeds();
+
+    private final double releaseLatency = ControlConstants.SHOT_RELEASE_LATENCY.in(Seconds);
+    private final double[] solution = new double[3]; // top, bottom, flight time
+    private double distance;
+    private double heading;
+    private double headingRate;
+    private double closingSpeed;
+    private double targetX;
+    private double targetY;
+
+    /** Solves for a robot that isn't moving. */
+    public void update(Pose2d pose) {
+        update(pose, STOPPED);
+    }
+
+    /** @param speeds Robot relative, as the drive reports them */
+    public void update(Pose2d pose, ChassisSpeeds speeds) {
+        double speakerX = AlignConstants.SPEAKER_POSITION.getX();
+        double speakerY = AlignConstants.SPEAKER_POSITION.getY();
+
+        double cos = pose.getRotation().getCos();
+        double sin = pose.getRotation().getSin();
+        double velocityX = (speeds.vxMetersPerSecond * cos) - (speeds.vyMetersPerSecond * sin);
+        double velocityY = (speeds.vxMetersPerSecond * sin) + (speeds.vyMetersPerSecond * cos);
+
+        // Where the robot will be when the note leaves
+        double releaseX = pose.getX() + (velocityX * releaseLatency);
+        double releaseY = pose.getY() + (velocityY * releaseLatency);
+
+        targetX = speakerX;
+        targetY = speakerY;
+        double deltaX = releaseX - targetX;
+        double deltaY = releaseY - targetY;
+        for (int a = 0; a < ITERATIONS; a++) {
+            SHOT_TABLE.get(Math.hypot(deltaX, deltaY), solution);
+            targetX = speakerX - (velocityX * solution[2]);
+            targetY = speakerY - (velocityY * solution[2]);
+            deltaX = releaseX - targetX;
+            deltaY = releaseY - targetY;
+        }
+
+        distance = Math.hypot(deltaX, deltaY);
+        SHOT_TABLE.get(distance, solution);
+        // The shooter is on the back of the robot, so it faces away from the speaker to shoot
+        heading = Math.atan2(deltaY, deltaX);
+        // How fast that heading turns as the robot drives past the target
+        headingRate =
+                distance < 1e-6
+                        ? 0
+                        : ((deltaX * velocityY) - (deltaY * velocityX)) / (distance * distance);
+        closingSpeed =
+                distance < 1e-6 ? 0 : -((deltaX * velocityX) + (deltaY * velocityY)) / distance;
+    }
+
+    /** @return Meters from the virtual target to where the robot releases the note */
+    public double getDistance() {
+        return distance;
+    }
+
+    /** @return The field relative heading in radians that points the shooter at the target */
+    public double getHeading() {
+        return heading;
+    }
+
+    /** @return How fast the heading needs to turn to stay on target, in radians per second */
+    public double getHeadingRate() {
+        return headingRate;
+    }
+
+    /** @return How fast the robot is driving toward the target in meters per second */
+    public double getClosingSpeed() {
+        return closingSpeed;
+    }
+
+    public double getTargetX() {
+        return targetX;
+    }
+
+    public double getTargetY() {
+        return targetY;
+    }
+
+    public double getTopSpeed() {
+        return solution[0];
+    }
+
+    public double getBottomSpeed() {
+        return solution[1];
+    }
+
+    /** @return Seconds from the note leaving to it reaching the speaker */
+    public double getFlightTime() {
+        return solution[2];
+    }
+
+    /** @return If the robot is close enough that the table covers the shot */
+    public boolean inRange() {
+        return distance <= getMaxDistance();
+    }
+
+    /** @return The farthest distance the table covers, in meters */
+    public static double getMaxDistance() {
+        return SHOT_TABLE.getMaxKey();
+    }
+
+    /**
+     * @return How far off the heading will be when the note leaves if the indexer feeds now, in
+     *     radians
+     */
+    public double getReleaseHeadingError(double currentHeading, double angularVelocity) {
+        return MathUtil.angleModulus(
+                heading - (currentHeading + (angularVelocity * releaseLatency)));
+    }
+
+    /** @return If feeding now puts the note on target, given the shooter is at speed */
+    public boolean readyToRelease(double currentHeading, double angularVelocity) {
+        return inRange()
+                && Math.abs(getReleaseHeadingError(currentHeading, angularVelocity))
+                        <= ControlConstants.ALLOWED_SHOT_HEADING_ERROR.in(Radians);
+    }
+}
@@ -0,0 +1,47 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.shooter;
+
+/**
+ * Sees a note going through the flywheels as a drop in speed or a rise in current from where they
+ * were when feeding started. Measured from then rather than from the setpoints, since a note can
+ * be fed while the flywheels are still spinning up, and being short of the setpoint would
+ * otherwise read as a shot.
+ */
+public class ShotDetector {
+    private final double speedDip;
+    private final double currentRise;
+
+    private double startTopVelocity;
+    private double startBottomVelocity;
+    private double startTopCurrent;
+    private double startBottomCurrent;
+
+    /**
+     * @param speedDip Fraction of the starting speed either flywheel has to drop by
+     * @param currentRise Amps either flywheel's current has to rise by
+     */
+    public ShotDetector(double speedDip, double currentRise) {
+        this.speedDip = speedDip;
+        this.currentRise = currentRise;
+    }
+
+    /** Remembers the flywheel speeds in RPM and currents in amps as the note is fed. */
+    public void start(
+            double topVelocity, double bottomVelocity, double topCurrent, double bottomCurrent) {
+        startTopVelocity = topVelocity;
+        startBottomVelocity = bottomVelocity;
+        startTopCurrent = topCurrent;
+        startBottomCurrent = bottomCurrent;
+    }
+
+    /** @return If either flywheel has slowed down or spiked in current enough since the start */
+    public boolean noteDetected(
+            double topVelocity, double bottomVelocity, double topCurrent, double bottomCurrent) {
+        return topVelocity < startTopVelocity * (1 - speedDip)
+                || bottomVelocity < startBottomVelocity * (1 - speedDip)
+                || topCurrent - startTopCurrent >= currentRise
+                || bottomCurrent - startBottomCurrent >= currentRise;
+    }
+}
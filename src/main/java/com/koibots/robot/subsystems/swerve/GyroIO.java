@@ -3,17 +3,29 @@
 
 package com.koibots.robot.subsystems.swerve;
 
-import edu.wpi.first.math.geometry.Rotation2d;
+import com.koibots.robot.Constants.ControlConstants;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface GyroIO {
     @AutoLog
     class GyroIOInputs {
-        public Rotation2d yawPosition = new Rotation2d();
+        public double yawPositionRad = 0.0;
         public double yawVelocityRadPerSec = 0.0;
+
+        // Odometry samples since the last loop, filled in by Swerve. Only the first
+        // odometrySampleCount entries of each array are used.
+        public int odometrySampleCount = 0;
+        public double[] odometryTimestamps = new double[ControlConstants.ODOMETRY_BUFFER_SIZE];
+        public double[] odometryYawPositionsRad =
+                new double[ControlConstants.ODOMETRY_BUFFER_SIZE];
     }
 
     void updateInputs(GyroIOInputs inputs);
 
     default void zeroYaw() {}
+
+    /** Reads the yaw in radians. Called from the odometry thread. */
+    default double getOdometryYaw() {
+        return 0.0;
+    }
 }
@@ -4,7 +4,7 @@
 package com.koibots.robot.subsystems.swerve;
 
 import com.kauailabs.navx.frc.AHRS;
-import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj.SPI;
 
 public class GyroIONavX implements GyroIO {
@@ -17,13 +17,19 @@ public class GyroIONavX implements GyroIO {
 
     @Override
     public void updateInputs(GyroIOInputs inputs) {
-        Rotation2d previousYaw = inputs.yawPosition;
-        inputs.yawPosition = Rotation2d.fromDegrees(gyro.getAngle() * -1);
-        inputs.yawVelocityRadPerSec = inputs.yawPosition.minus(previousYaw).getRadians() / 0.02;
+        double previousYaw = inputs.yawPositionRad;
+        inputs.yawPositionRad = Math.toRadians(gyro.getAngle() * -1);
+        inputs.yawVelocityRadPerSec =
+                MathUtil.angleModulus(inputs.yawPositionRad - previousYaw) / 0.02;
     }
 
     @Override
     public void zeroYaw() {
         gyro.reset();
     }
+
+    @Override
+    public double getOdometryYaw() {
+        return Math.toRadians(gyro.getAngle() * -1);
+    }
 }
@@ -6,7 +6,7 @@ package com.koibots.robot.subsystems.swerve;
 import static com.koibots.robot.subsystems.Subsystems.Swerve;
 
 import com.koibots.robot.Constants.ControlConstants;
-import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 
 public class GyroIOSim implements GyroIO {
@@ -15,9 +15,9 @@ public class GyroIOSim implements GyroIO {
         ChassisSpeeds speeds =
                 ControlConstants.SWERVE_KINEMATICS.toChassisSpeeds(Swerve.get().getModuleStates());
 
-        inputs.yawPosition =
-                inputs.yawPosition.plus(
-                        Rotation2d.fromRadians(speeds.omegaRadiansPerSecond * 0.02));
+        inputs.yawPositionRad =
+                MathUtil.angleModulus(
+                        inputs.yawPositionRad + (speeds.omegaRadiansPerSecond * 0.02));
         inputs.yawVelocityRadPerSec = speeds.omegaRadiansPerSecond;
     }
 }
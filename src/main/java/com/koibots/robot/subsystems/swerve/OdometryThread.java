@@ -0,0 +1,97 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.swerve;
+
+import static edu.wpi.first.units.Units.Seconds;
+
+import com.koibots.robot.Constants.ControlConstants;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Samples registered odometry signals on a background {@link Notifier} faster than the main loop.
+ * Every sample is stored with its FPGA timestamp in a bounded ring buffer, which the main loop
+ * drains in order. When the buffer is full the oldest sample is overwritten.
+ */
+public class OdometryThread {
+    private final List<DoubleSupplier> signals = new ArrayList<>();
+    private final Lock lock = new ReentrantLock();
+    private final Notifier notifier;
+
+    private final double[] timestamps;
+    private double[][] samples;
+    private int head = 0; // Index of the oldest sample
+    private int size = 0;
+
+    public OdometryThread() {
+        timestamps = new double[ControlConstants.ODOMETRY_BUFFER_SIZE];
+        notifier = new Notifier(this::sample);
+        notifier.setName("OdometryThread");
+    }
+
+    /** Registers a signal to be sampled. Must be called before {@link #start()}. */
+    public int registerSignal(DoubleSupplier signal) {
+        if (samples != null) {
+            throw new IllegalStateException("Cannot register signals after the thread started");
+        }
+        signals.add(signal);
+        return signals.size() - 1;
+    }
+
+    public void start() {
+        samples = new double[signals.size()][ControlConstants.ODOMETRY_BUFFER_SIZE];
+        notifier.startPeriodic(ControlConstants.ODOMETRY_PERIOD.in(Seconds));
+    }
+
+    private void sample() {
+        double timestamp = Timer.getFPGATimestamp();
+        lock.lock();
+        try {
+            int index = (head + size) % timestamps.length;
+            if (size == timestamps.length) {
+                head = (head + 1) % timestamps.length;
+            } else {
+                size++;
+            }
+
+            timestamps[index] = timestamp;
+            for (int a = 0; a < samples.length; a++) {
+                samples[a][index] = signals.get(a).getAsDouble();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Copies every buffered sample, oldest first, into the given arrays and clears the buffer.
+     *
+     * @param timestampsOut Receives the FPGA timestamp of each sample, in seconds
+     * @param samplesOut Receives the samples, indexed by [signal][sample]
+     * @return The number of samples copied
+     */
+    public int drain(double[] timestampsOut, double[][] samplesOut) {
+        lock.lock();
+        try {
+            int count = size;
+            for (int a = 0; a < count; a++) {
+                int index = (head + a) % timestamps.length;
+                timestampsOut[a] = timestamps[index];
+                for (int b = 0; b < samples.length; b++) {
+                    samplesOut[b][a] = samples[b][index];
+                }
+            }
+            head = 0;
+            size = 0;
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -3,10 +3,18 @@
 
 package com.koibots.robot.subsystems.swerve;
 
+import static edu.wpi.first.units.Units.MetersPerSecond;
+
+import com.koibots.lib.util.LoopProfiler;
+import com.koibots.lib.util.PoseHistory;
 import com.koibots.robot.Constants.ControlConstants;
 import com.koibots.robot.Constants.DeviceIDs;
 import com.koibots.robot.Constants.RobotConstants;
+import com.koibots.robot.Constants.VisionConstants;
 import com.koibots.robot.Robot;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
@@ -15,8 +23,10 @@ import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 import edu.wpi.first.util.sendable.SendableBuilder;
-import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import org.littletonrobotics.junction.Logger;
@@ -25,7 +35,39 @@ public class Swerve extends SubsystemBase {
     SwerveModule[] swerveModules;
     GyroIO gyro;
     GyroIOInputsAutoLogged gyroInputs = new GyroIOInputsAutoLogged();
+    volatile Rotation2d gyroAngle = new Rotation2d(); // Also read by the vision thread
     SwerveDrivePoseEstimator odometry;
+    final Matrix<N3, N1> visionStdDevs = new Matrix<>(Nat.N3(), Nat.N1());
+    private final LoopProfiler.Phase periodicProfile = LoopProfiler.register("Swerve");
+    private final LoopProfiler.Phase inputsProfile = LoopProfiler.register("Swerve/Inputs");
+
+    // Null in simulation, where the module sims only step once per loop
+    OdometryThread odometryThread;
+    final double[] odometryTimestamps = new double[ControlConstants.ODOMETRY_BUFFER_SIZE];
+    final double[][] odometrySamples =
+            new double[9][ControlConstants.ODOMETRY_BUFFER_SIZE]; // Yaw, then drive/turn per module
+    final SwerveModulePosition[] odometryPositions = {
+        new SwerveModulePosition(),
+        new SwerveModulePosition(),
+        new SwerveModulePosition(),
+        new SwerveModulePosition()
+    };
+    private Rotation2d odometryYaw = new Rotation2d();
+    // The estimate after each sample, so vision can be compared to where it was at capture time
+    private final PoseHistory poseHistory = new PoseHistory(ControlConstants.POSE_HISTORY_SIZE);
+
+    // Preallocated so the drive loop doesn't allocate
+    private static final double LOOP_PERIOD_SECS = 0.02;
+    private static final double[] NO_SETPOINTS = {};
+    private final double maxLinearSpeed = RobotConstants.MAX_LINEAR_SPEED.in(MetersPerSecond);
+    private final double[] moduleLocationsX = new double[4];
+    private final double[] moduleLocationsY = new double[4];
+    private final double[] targetSpeeds = new double[4];
+    private final double[] targetAngles = new double[4];
+    private final double[] setpointStates = new double[8]; // Angle, velocity per module
+    private final double[] measuredStates = new double[8];
+    private final SwerveModuleState[] moduleStates = new SwerveModuleState[4];
+    private final SwerveModulePosition[] modulePositions = new SwerveModulePosition[4];
 
     public PIDController xController;
     public PIDController yController;
@@ -69,23 +111,30 @@ public class Swerve extends SubsystemBase {
             gyro = new GyroIOSim();
         }
 
+        for (int a = 0; a < 4; a++) {
+            moduleLocationsX[a] = ControlConstants.MODULE_LOCATIONS[a].getX();
+            moduleLocationsY[a] = ControlConstants.MODULE_LOCATIONS[a].getY();
+        }
+
         odometry =
                 new SwerveDrivePoseEstimator(
                         ControlConstants.SWERVE_KINEMATICS,
-                        gyroInputs.yawPosition,
+                        gyroAngle,
                         getModulePositions(),
-                        new Pose2d());
-
-        try (Notifier odometryUpdater =
-                new Notifier(
-                        () -> {
-                            gyro.updateInputs(gyroInputs);
-                            odometry.updateWithTime(
-                                    Logger.getRealTimestamp(),
-                                    gyroInputs.yawPosition,
-                                    getModulePositions());
-                        })) {
-            odometryUpdater.startPeriodic(1.0 / 200); // Run at 200hz
+                        new Pose2d(),
+                        VecBuilder.fill(
+                                VisionConstants.ODOMETRY_STD_DEVS[0],
+                                VisionConstants.ODOMETRY_STD_DEVS[1],
+                                VisionConstants.ODOMETRY_STD_DEVS[2]),
+                        VecBuilder.fill(0.9, 0.9, 0.9));
+
+        if (Robot.isReal()) {
+            odometryThread = new OdometryThread();
+            odometryThread.registerSignal(gyro::getOdometryYaw);
+            for (SwerveModule module : swerveModules) {
+                module.registerOdometrySignals(odometryThread);
+            }
+            odometryThread.start();
         }
 
         xController =
@@ -103,6 +152,7 @@ public class Swerve extends SubsystemBase {
                         ControlConstants.VTHETA_CONTROLLER.kP,
                         ControlConstants.VTHETA_CONTROLLER.kI,
                         ControlConstants.VTHETA_CONTROLLER.kD);
+        thetaController.enableContinuousInput(-Math.PI, Math.PI);
 
         SmartDashboard.putData("X Controller", xController);
         SmartDashboard.putData("Y Controller", yController);
@@ -111,11 +161,67 @@ public class Swerve extends SubsystemBase {
 
     @Override
     public void periodic() {
+        periodicProfile.start();
+        inputsProfile.start();
+        // The samples go through the logged inputs so replay sees every one of them
+        int sampleCount = 1;
+        if (odometryThread != null) {
+            sampleCount = odometryThread.drain(odometryTimestamps, odometrySamples);
+        }
+
         gyro.updateInputs(gyroInputs);
+        gyroInputs.odometrySampleCount = sampleCount;
+        if (odometryThread != null) {
+            System.arraycopy(odometryTimestamps, 0, gyroInputs.odometryTimestamps, 0, sampleCount);
+            System.arraycopy(
+                    odometrySamples[0], 0, gyroInputs.odometryYawPositionsRad, 0, sampleCount);
+        } else {
+            // Without the thread, this loop's reading is the only sample
+            gyroInputs.odometryTimestamps[0] = Timer.getFPGATimestamp();
+            gyroInputs.odometryYawPositionsRad[0] = gyroInputs.yawPositionRad;
+        }
 
         Logger.processInputs("Subsystems/Drive/Gyro", gyroInputs);
 
-        odometry.update(gyroInputs.yawPosition, getModulePositions());
+        // Only build a new Rotation2d when the robot actually turned
+        if (gyroInputs.yawPositionRad != gyroAngle.getRadians()) {
+            gyroAngle = Rotation2d.fromRadians(gyroInputs.yawPositionRad);
+        }
+
+        for (int b = 0; b < 4; b++) {
+            if (odometryThread != null) {
+                swerveModules[b].updateInputs(
+                        odometrySamples[1 + (b * 2)], odometrySamples[2 + (b * 2)], sampleCount);
+            } else {
+                swerveModules[b].updateInputs(null, null, sampleCount);
+            }
+        }
+        inputsProfile.stop();
+
+        // Read back from the inputs, so replay rebuilds the same pose
+        for (int a = 0; a < gyroInputs.odometrySampleCount; a++) {
+            // Rotation2d is immutable, so angles are only rebuilt when the sample changed them
+            for (int b = 0; b < 4; b++) {
+                odometryPositions[b].distanceMeters = swerveModules[b].getOdometryDrivePosition(a);
+                double angle = swerveModules[b].getOdometryTurnPosition(a);
+                if (angle != odometryPositions[b].angle.getRadians()) {
+                    odometryPositions[b].angle = Rotation2d.fromRadians(angle);
+                }
+            }
+            double yaw = gyroInputs.odometryYawPositionsRad[a];
+            if (yaw != odometryYaw.getRadians()) {
+                odometryYaw = Rotation2d.fromRadians(yaw);
+            }
+            Pose2d estimate =
+                    odometry.updateWithTime(
+                            gyroInputs.odometryTimestamps[a], odometryYaw, odometryPositions);
+            poseHistory.add(
+                    gyroInputs.odometryTimestamps[a],
+                    estimate.getX(),
+                    estimate.getY(),
+                    estimate.getRotation().getRadians());
+        }
+        Logger.recordOutput("Odometry/SampleCount", gyroInputs.odometrySampleCount);
 
         Logger.recordOutput("Odometry", odometry.getEstimatedPosition());
 
@@ -124,99 +230,151 @@ public class Swerve extends SubsystemBase {
         swerveModules[2].periodic();
         swerveModules[3].periodic();
 
-        double[] statesDegrees = new double[8];
-        double[] statesRadians = new double[8];
         for (int i = 0; i < 4; i++) {
-            statesDegrees[i * 2] = swerveModules[i].getAngle().getDegrees();
-            statesDegrees[(i * 2) + 1] = swerveModules[i].getVelocityMetersPerSec();
-            statesRadians[i * 2] = swerveModules[i].getAngle().getRadians();
-            statesRadians[(i * 2) + 1] = swerveModules[i].getVelocityMetersPerSec();
+            measuredStates[i * 2] = swerveModules[i].getAngle().getRadians();
+            measuredStates[(i * 2) + 1] = swerveModules[i].getVelocityMetersPerSec();
         }
 
-        Logger.recordOutput("SwerveStates/Measured", statesDegrees);
-        Logger.recordOutput("SwerveStates/Measured", statesRadians);
+        Logger.recordOutput("SwerveStates/Measured", measuredStates);
 
         // field.setRobotPose(getEstimatedPose());
         // SmartDashboard.putData(field);
+
+        periodicProfile.stop();
     }
 
     public void addVisionMeasurement(Pose2d measurement, double timestamp) {
         odometry.addVisionMeasurement(measurement, timestamp);
     }
 
+    public void addVisionMeasurement(
+            Pose2d measurement,
+            double timestamp,
+            double xStdDev,
+            double yStdDev,
+            double thetaStdDev) {
+        visionStdDevs.set(0, 0, xStdDev);
+        visionStdDevs.set(1, 0, yStdDev);
+        visionStdDevs.set(2, 0, thetaStdDev);
+        odometry.addVisionMeasurement(measurement, timestamp, visionStdDevs);
+    }
+
     public void zeroGyro() {
         gyro.zeroYaw();
     }
 
     public void driveRobotRelative(ChassisSpeeds speeds) {
-        speeds = ChassisSpeeds.discretize(speeds, 0.02);
-
-        SwerveModuleState[] targetModuleStates =
-                ControlConstants.SWERVE_KINEMATICS.toSwerveModuleStates(speeds);
-
-        SwerveDriveKinematics.desaturateWheelSpeeds(
-                targetModuleStates, RobotConstants.MAX_LINEAR_SPEED);
-
-        if (speeds.vxMetersPerSecond == 0.0
-                && speeds.vyMetersPerSecond == 0.0
-                && speeds.omegaRadiansPerSecond == 0) {
-            var currentStates = this.getModuleStates();
-            targetModuleStates[0] = new SwerveModuleState(0, currentStates[0].angle);
-            targetModuleStates[1] = new SwerveModuleState(0, currentStates[1].angle);
-            targetModuleStates[2] = new SwerveModuleState(0, currentStates[2].angle);
-            targetModuleStates[3] = new SwerveModuleState(0, currentStates[3].angle);
-        }
+        driveRobotRelative(
+                speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+    }
+
+    public void driveRobotRelative(double vx, double vy, double omega) {
+        calculateModuleSetpoints(vx, vy, omega);
+        applyModuleSetpoints();
+    }
 
-        this.setModuleStates(targetModuleStates);
+    /** Drives with field relative speeds, rotated by the estimated heading. */
+    public void driveFieldRelative(double vx, double vy, double omega) {
+        Rotation2d heading = getEstimatedPose().getRotation();
+        driveRobotRelative(
+                (vx * heading.getCos()) + (vy * heading.getSin()),
+                (vy * heading.getCos()) - (vx * heading.getSin()),
+                omega);
     }
 
     public void driveRobotRelativeByModule(ChassisSpeeds speeds, boolean[] whichModules) {
-        speeds = ChassisSpeeds.discretize(speeds, 0.02);
-
-        SwerveModuleState[] targetModuleStates =
-                ControlConstants.SWERVE_KINEMATICS.toSwerveModuleStates(speeds);
-
-        SwerveDriveKinematics.desaturateWheelSpeeds(
-                targetModuleStates, RobotConstants.MAX_LINEAR_SPEED);
-
-        if (speeds.vxMetersPerSecond == 0.0
-                && speeds.vyMetersPerSecond == 0.0
-                && speeds.omegaRadiansPerSecond == 0) {
-            var currentStates = this.getModuleStates();
-            targetModuleStates[0] = new SwerveModuleState(0, currentStates[0].angle);
-            targetModuleStates[1] = new SwerveModuleState(0, currentStates[1].angle);
-            targetModuleStates[2] = new SwerveModuleState(0, currentStates[2].angle);
-            targetModuleStates[3] = new SwerveModuleState(0, currentStates[3].angle);
+        calculateModuleSetpoints(
+                speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+
+        for (int a = 0; a < 4; a++) {
+            if (!whichModules[a]) {
+                targetSpeeds[a] = 0.0;
+                targetAngles[a] = 0.0;
+            }
         }
 
+        applyModuleSetpoints();
+    }
+
+    /**
+     * Fills {@link #targetSpeeds} and {@link #targetAngles} with the module setpoints for the given
+     * robot relative speeds. Does the same math as {@link ChassisSpeeds#discretize}, {@link
+     * SwerveDriveKinematics#toSwerveModuleStates} and {@link
+     * SwerveDriveKinematics#desaturateWheelSpeeds}, but on primitives so it doesn't allocate.
+     */
+    private void calculateModuleSetpoints(double vx, double vy, double omega) {
+        if (vx == 0.0 && vy == 0.0 && omega == 0.0) {
+            // Hold the current angles instead of snapping back to 0
+            for (int a = 0; a < 4; a++) {
+                targetSpeeds[a] = 0.0;
+                targetAngles[a] = swerveModules[a].getAngle().getRadians();
+            }
+            return;
+        }
+
+        // Discretize, see Pose2d.log()
+        double dtheta = omega * LOOP_PERIOD_SECS;
+        double halfDtheta = dtheta / 2.0;
+        double cosMinusOne = Math.cos(dtheta) - 1.0;
+        double halfThetaByTanOfHalfDtheta =
+                (Math.abs(cosMinusOne) < 1e-9)
+                        ? 1.0 - ((dtheta * dtheta) / 12.0)
+                        : -(halfDtheta * Math.sin(dtheta)) / cosMinusOne;
+        double discreteVx = (vx * halfThetaByTanOfHalfDtheta) + (vy * halfDtheta);
+        double discreteVy = (vy * halfThetaByTanOfHalfDtheta) - (vx * halfDtheta);
+
+        // Inverse kinematics
+        double fastestSpeed = 0.0;
+        for (int a = 0; a < 4; a++) {
+            double moduleVx = discreteVx - (omega * moduleLocationsY[a]);
+            double moduleVy = discreteVy + (omega * moduleLocationsX[a]);
+            targetSpeeds[a] = Math.hypot(moduleVx, moduleVy);
+            targetAngles[a] = Math.atan2(moduleVy, moduleVx);
+            fastestSpeed = Math.max(fastestSpeed, targetSpeeds[a]);
+        }
+
+        // Desaturate
+        if (fastestSpeed > maxLinearSpeed) {
+            for (int a = 0; a < 4; a++) {
+                targetSpeeds[a] *= maxLinearSpeed / fastestSpeed;
+            }
+        }
+    }
+
+    private void applyModuleSetpoints() {
         for (int a = 0; a < 4; a++) {
-            targetModuleStates[a] =
-                    whichModules[a] ? targetModuleStates[a] : new SwerveModuleState();
+            swerveModules[a].setState(targetSpeeds[a], targetAngles[a]);
+            setpointStates[a * 2] = swerveModules[a].getAngleSetpoint();
+            setpointStates[(a * 2) + 1] = swerveModules[a].getSpeedSetpoint();
         }
 
-        this.setModuleStates(targetModuleStates);
+        Logger.recordOutput("SwerveStates/Setpoints", setpointStates);
     }
 
     public Rotation2d getGyroAngle() {
-        return gyroInputs.yawPosition;
+        return gyroAngle;
     }
 
+    /**
+     * Returns the measured module states. The same array is refreshed and returned on every call,
+     * so copy it if it needs to be kept.
+     */
     public SwerveModuleState[] getModuleStates() {
-        return new SwerveModuleState[] {
-            swerveModules[0].getState(),
-            swerveModules[1].getState(),
-            swerveModules[2].getState(),
-            swerveModules[3].getState()
-        };
+        for (int a = 0; a < 4; a++) {
+            moduleStates[a] = swerveModules[a].getState();
+        }
+        return moduleStates;
     }
 
+    /**
+     * Returns the measured module positions. The same array is refreshed and returned on every
+     * call, so copy it if it needs to be kept.
+     */
     public SwerveModulePosition[] getModulePositions() {
-        return new SwerveModulePosition[] {
-            swerveModules[0].getPosition(),
-            swerveModules[1].getPosition(),
-            swerveModules[2].getPosition(),
-            swerveModules[3].getPosition()
-        };
+        for (int a = 0; a < 4; a++) {
+            modulePositions[a] = swerveModules[a].getPosition();
+        }
+        return modulePositions;
     }
 
     public ChassisSpeeds getRelativeSpeeds() {
@@ -224,20 +382,21 @@ public class Swerve extends SubsystemBase {
     }
 
     public void resetOdometry(Pose2d pose) {
-        odometry.resetPosition(gyroInputs.yawPosition, getModulePositions(), pose);
+        odometry.resetPosition(gyroAngle, getModulePositions(), pose);
+        poseHistory.clear();
     }
 
     public void setModuleStates(SwerveModuleState[] states) {
-        Logger.recordOutput(
-                "SwerveStates/Setpoints",
-                swerveModules[0].setState(states[0]),
-                swerveModules[1].setState(states[1]),
-                swerveModules[2].setState(states[2]),
-                swerveModules[3].setState(states[3]));
+        for (int a = 0; a < 4; a++) {
+            targetSpeeds[a] = states[a].speedMetersPerSecond;
+            targetAngles[a] = states[a].angle.getRadians();
+        }
+
+        applyModuleSetpoints();
     }
 
     public void stop() {
-        Logger.recordOutput("SwerveStates/Setpoints", new SwerveModuleState[] {});
+        Logger.recordOutput("SwerveStates/Setpoints", NO_SETPOINTS);
         swerveModules[0].stop();
         swerveModules[1].stop();
         swerveModules[2].stop();
@@ -245,44 +404,52 @@ public class Swerve extends SubsystemBase {
     }
 
     public void setCross() {
-        setModuleStates(
-                new SwerveModuleState[] {
-                    new SwerveModuleState(0, new Rotation2d(0)), // Rotation2d.fromDegrees(45)),
-                    new SwerveModuleState(0, new Rotation2d(0)), // Rotation2d.fromDegrees(-45)),
-                    new SwerveModuleState(0, new Rotation2d(0)), // Rotation2d.fromDegrees(-45)),
-                    new SwerveModuleState(0, new Rotation2d(0)), // Rotation2d.fromDegrees(45))
-                });
+        for (int a = 0; a < 4; a++) {
+            targetSpeeds[a] = 0.0;
+            targetAngles[a] = 0.0; // Rotation2d.fromDegrees(45/-45/-45/45)
+        }
+
+        applyModuleSetpoints();
     }
 
     public Pose2d getEstimatedPose() {
         return odometry.getEstimatedPosition();
     }
 
+    /**
+     * Finds the estimated pose at an FPGA timestamp into poseOut as x, y, theta, as it was before
+     * any later vision corrections.
+     *
+     * @return False if the timestamp is older than the history goes back
+     */
+    public boolean getEstimatedPoseAt(double timestamp, double[] poseOut) {
+        return poseHistory.sample(timestamp, poseOut);
+    }
+
     @Override
     public void initSendable(SendableBuilder builder) {
         builder.setSmartDashboardType("SwerveDrive");
 
-        SwerveModuleState[] measuredStates = getModuleStates();
-
-        builder.addDoubleProperty("Front Left Angle", measuredStates[0].angle::getDegrees, null);
         builder.addDoubleProperty(
-                "Front Left Velocity", () -> measuredStates[0].speedMetersPerSecond, null);
+                "Front Left Angle", () -> swerveModules[0].getAngle().getDegrees(), null);
+        builder.addDoubleProperty(
+                "Front Left Velocity", swerveModules[0]::getVelocityMetersPerSec, null);
 
         builder.addDoubleProperty(
-                "Front Right Angle", () -> measuredStates[1].angle.getDegrees(), null);
+                "Front Right Angle", () -> swerveModules[1].getAngle().getDegrees(), null);
         builder.addDoubleProperty(
-                "Front Right Velocity", () -> measuredStates[1].speedMetersPerSecond, null);
+                "Front Right Velocity", swerveModules[1]::getVelocityMetersPerSec, null);
 
         builder.addDoubleProperty(
-                "Back Left Angle", () -> measuredStates[2].angle.getDegrees(), null);
+                "Back Left Angle", () -> swerveModules[2].getAngle().getDegrees(), null);
         builder.addDoubleProperty(
-                "Back Left Velocity", () -> measuredStates[2].speedMetersPerSecond, null);
+                "Back Left Velocity", swerveModules[2]::getVelocityMetersPerSec, null);
 
         builder.addDoubleProperty(
-                "Back Right Angle", () -> measuredStates[3].angle.getDegrees(), null);
+                "Back Right Angle", () -> swerveModules[3].getAngle().getDegrees(), null);
         builder.addDoubleProperty(
-                "Back Right Velocity", () -> measuredStates[3].speedMetersPerSecond, null);
+                "Back Right Velocity", swerveModules[3]::getVelocityMetersPerSec, null);
 
-        builder.addDoubleProperty("Robot Angle", () -> gyroInputs.yawPosition.getDegrees(), null);
+        builder.addDoubleProperty("Robot Angle", () -> gyroAngle.getDegrees(), null);
     }
 }
@@ -6,12 +6,14 @@ package com.koibots.robot.subsystems.swerve;
 import static edu.wpi.first.units.Units.*;
 
 import com.koibots.robot.Constants.ControlConstants;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState;
 import edu.wpi.first.units.Measure;
+import edu.wpi.first.units.MutableMeasure;
 import edu.wpi.first.units.Voltage;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import org.littletonrobotics.junction.Logger;
@@ -24,9 +26,15 @@ public class SwerveModule {
     private final SimpleMotorFeedforward driveFeedforward;
     private final PIDController driveFeedback;
     private final PIDController turnFeedback;
-    private Rotation2d angleSetpoint =
-            new Rotation2d(); // Setpoint for closed loop control, null for open loop
-    private Double speedSetpoint = 0.0; // Setpoint for closed loop control, null for open loop
+    private double angleSetpoint = 0.0; // Radians
+    private double speedSetpoint = 0.0; // Meters per second
+
+    // Reused every loop so reading the module state doesn't allocate
+    private Rotation2d angle = new Rotation2d();
+    private final SwerveModulePosition position = new SwerveModulePosition();
+    private final SwerveModuleState state = new SwerveModuleState();
+    private final MutableMeasure<Voltage> driveVoltage = MutableMeasure.zero(Volts);
+    private final MutableMeasure<Voltage> turnVoltage = MutableMeasure.zero(Volts);
 
     public SwerveModule(SwerveModuleIO io, int index) {
         this.io = io;
@@ -58,53 +66,114 @@ public class SwerveModule {
         turnFeedback.setTolerance(0.00001);
     }
 
-    public void periodic() {
+    /**
+     * Updates and logs the module inputs. Call before odometry and {@link #periodic()}.
+     *
+     * @param odometryDrivePositions Drive positions drained from the odometry thread, or null
+     *     without one, in which case the current position is the only sample
+     * @param odometryTurnPositions Turn positions drained from the odometry thread, or null
+     */
+    public void updateInputs(
+            double[] odometryDrivePositions, double[] odometryTurnPositions, int sampleCount) {
         io.updateInputs(inputs);
-        inputs.setpoint = angleSetpoint.getRadians();
+        inputs.setpoint = angleSetpoint;
+        if (odometryDrivePositions == null) {
+            inputs.odometryDrivePositionsMeters[0] = inputs.drivePositionMeters;
+            inputs.odometryTurnPositionsRad[0] = inputs.turnPositionRad;
+        } else {
+            System.arraycopy(
+                    odometryDrivePositions, 0, inputs.odometryDrivePositionsMeters, 0, sampleCount);
+            System.arraycopy(
+                    odometryTurnPositions, 0, inputs.odometryTurnPositionsRad, 0, sampleCount);
+        }
         Logger.processInputs("Subsystems/Drive/Module" + index, inputs);
 
+        // Only build a new Rotation2d when the module actually turned
+        if (inputs.turnPositionRad != angle.getRadians()) {
+            angle = Rotation2d.fromRadians(inputs.turnPositionRad);
+        }
+    }
+
+    /** @return The logged drive position of an odometry sample, in meters */
+    public double getOdometryDrivePosition(int sample) {
+        return inputs.odometryDrivePositionsMeters[sample];
+    }
+
+    /** @return The logged turn position of an odometry sample, in radians */
+    public double getOdometryTurnPosition(int sample) {
+        return inputs.odometryTurnPositionsRad[sample];
+    }
+
+    /** Registers this module's drive and turn positions with the odometry thread. */
+    public void registerOdometrySignals(OdometryThread odometryThread) {
+        odometryThread.registerSignal(io::getOdometryDrivePosition);
+        odometryThread.registerSignal(io::getOdometryTurnPosition);
+    }
+
+    public void periodic() {
+        if (ControlConstants.ONBOARD_MODULE_CONTROL) {
+            // The SparkMaxes run both loops, so only the setpoints are sent
+            io.setTurnPosition(angleSetpoint);
+
+            if (speedSetpoint > 0.1 || speedSetpoint < -0.1) {
+                io.setDriveVelocity(speedSetpoint, driveFeedforward.calculate(speedSetpoint));
+            } else {
+                driveVoltage.mut_setMagnitude(0);
+                io.setDriveVoltage(driveVoltage);
+            }
+            return;
+        }
+
         // Run closed loop turn control
-        var turnPID = turnFeedback.calculate(getAngle().getRadians(), angleSetpoint.getRadians());
+        var turnPID = turnFeedback.calculate(inputs.turnPositionRad, angleSetpoint);
 
-        var angleOutput =
-                Volts.of(turnPID + (Math.signum(turnPID) * ControlConstants.DRIVE_TURN_KS));
+        turnVoltage.mut_setMagnitude(
+                turnPID + (Math.signum(turnPID) * ControlConstants.DRIVE_TURN_KS));
         //                         + (angleSetpoint.getRadians() -
         // Math.signum(getAngle().getRadians())) * ControlConstants.DRIVE_TURN_KS);
 
-        io.setTurnVoltage(angleOutput);
+        io.setTurnVoltage(turnVoltage);
 
         // Run closed loop drive control
         if (speedSetpoint > 0.1 || speedSetpoint < -0.1) {
-            io.setDriveVoltage(
-                    Volts.of(
-                            driveFeedback.calculate(getVelocityMetersPerSec(), speedSetpoint)
-                                    + driveFeedforward.calculate(speedSetpoint)));
+            driveVoltage.mut_setMagnitude(
+                    driveFeedback.calculate(getVelocityMetersPerSec(), speedSetpoint)
+                            + driveFeedforward.calculate(speedSetpoint));
         } else {
             // System.out.println("Zeroing voltage");
-            io.setDriveVoltage(Volts.of(0));
+            driveVoltage.mut_setMagnitude(0);
         }
+        io.setDriveVoltage(driveVoltage);
     }
 
-    /** Runs the module with the specified setpoint state. Returns the optimized state. */
-    public SwerveModuleState setState(SwerveModuleState state) {
-
-        // if (MathUtil.inputModulus(getAngle().minus(state.angle).getRadians(), -Math.PI, Math.PI)
-        // >= Math.toRadians(90)) { // True if error is greater than 110 degrees TODO: Didn't work
+    /**
+     * Runs the module with the specified setpoint. The setpoint is optimized the same way as
+     * {@link SwerveModuleState#optimize}, without allocating a new state.
+     */
+    public void setState(double speedMetersPerSecond, double angleRadians) {
         // Optimize state based on current angle
-        var optimizedSetpoint = SwerveModuleState.optimize(state, getAngle());
+        if (Math.abs(MathUtil.angleModulus(angleRadians - inputs.turnPositionRad))
+                > Math.PI / 2) {
+            speedMetersPerSecond *= -1;
+            angleRadians += Math.PI;
+        }
 
         // Update setpoints, controllers run in "periodic"
-        angleSetpoint = optimizedSetpoint.angle;
+        angleSetpoint = MathUtil.angleModulus(angleRadians);
         speedSetpoint =
-                optimizedSetpoint.speedMetersPerSecond * Math.cos(turnFeedback.getPositionError());
+                speedMetersPerSecond
+                        * Math.cos(MathUtil.angleModulus(angleSetpoint - inputs.turnPositionRad));
         // Cosine scaling makes it so it won't drive (much) while module is turning
+    }
+
+    /** Returns the optimized turn setpoint in radians. */
+    public double getAngleSetpoint() {
+        return angleSetpoint;
+    }
 
-        return optimizedSetpoint;
-        // } else {
-        //     angleSetpoint = state.angle;
-        //     speedSetpoint = state.speedMetersPerSecond;
-        //     return state;
-        // }
+    /** Returns the cosine scaled drive setpoint in meters per second. */
+    public double getSpeedSetpoint() {
+        return speedSetpoint;
     }
 
     public void setVoltages(Measure<Voltage> driveVolts, Measure<Voltage> turnVolts) {
@@ -118,32 +187,42 @@ public class SwerveModule {
         io.setDriveVoltage(Volts.of(0));
 
         // Disable closed loop control for turn and drive
-        angleSetpoint = getAngle();
+        angleSetpoint = inputs.turnPositionRad;
         speedSetpoint = 0.0;
     }
 
     /** Returns the current turn angle of the module. */
     public Rotation2d getAngle() {
-        return inputs.turnPosition;
+        return angle;
     }
 
     /** Returns the current drive position of the module in meters. */
     public double getPositionMeters() {
-        return inputs.drivePosition.in(Meters);
+        return inputs.drivePositionMeters;
     }
 
     /** Returns the current drive velocity of the module in meters per second. */
     public double getVelocityMetersPerSec() {
-        return inputs.driveVelocity.in(MetersPerSecond);
+        return inputs.driveVelocityMetersPerSec;
     }
 
-    /** Returns the module position (turn angle and drive position). */
+    /**
+     * Returns the module position (turn angle and drive position). The same instance is updated and
+     * returned on every call, so copy it if it needs to be kept.
+     */
     public SwerveModulePosition getPosition() {
-        return new SwerveModulePosition(getPositionMeters(), getAngle());
+        position.distanceMeters = getPositionMeters();
+        position.angle = getAngle();
+        return position;
     }
 
-    /** Returns the module state (turn angle and drive velocity). */
+    /**
+     * Returns the module state (turn angle and drive velocity). The same instance is updated and
+     * returned on every call, so copy it if it needs to be kept.
+     */
     public SwerveModuleState getState() {
-        return new SwerveModuleState(getVelocityMetersPerSec(), getAngle());
+        state.speedMetersPerSecond = getVelocityMetersPerSec();
+        state.angle = getAngle();
+        return state;
     }
 }
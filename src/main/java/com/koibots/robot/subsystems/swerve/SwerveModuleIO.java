@@ -3,34 +3,31 @@
 
 package com.koibots.robot.subsystems.swerve;
 
-import static edu.wpi.first.units.Units.Amps;
-import static edu.wpi.first.units.Units.Meters;
-import static edu.wpi.first.units.Units.MetersPerSecond;
-import static edu.wpi.first.units.Units.RadiansPerSecond;
-import static edu.wpi.first.units.Units.Volts;
-
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.units.Angle;
-import edu.wpi.first.units.Current;
-import edu.wpi.first.units.Distance;
+import com.koibots.robot.Constants.ControlConstants;
 import edu.wpi.first.units.Measure;
-import edu.wpi.first.units.Velocity;
 import edu.wpi.first.units.Voltage;
 import org.littletonrobotics.junction.AutoLog;
 
 public interface SwerveModuleIO {
     @AutoLog
     class SwerveModuleInputs {
-        public Measure<Distance> drivePosition = Meters.of(0);
-        public Measure<Velocity<Distance>> driveVelocity = MetersPerSecond.of(0);
-        public Measure<Voltage> driveAppliedVoltage = Volts.of(0);
-        public Measure<Current> driveCurrent = Amps.of(0);
-
-        public Rotation2d turnPosition = new Rotation2d();
-        public Measure<Velocity<Angle>> turnVelocity = RadiansPerSecond.of(0);
-        public Measure<Voltage> turnAppliedVoltage = Volts.of(0);
-        public Measure<Current> turnCurrent = Amps.of(0);
+        // Primitives so updating the inputs doesn't allocate, units are in the names
+        public double drivePositionMeters = 0.0;
+        public double driveVelocityMetersPerSec = 0.0;
+        public double driveAppliedVolts = 0.0;
+        public double driveCurrentAmps = 0.0;
+
+        public double turnPositionRad = 0.0;
+        public double turnVelocityRadPerSec = 0.0;
+        public double turnAppliedVolts = 0.0;
+        public double turnCurrentAmps = 0.0;
         public double setpoint = 0;
+
+        // Odometry samples since the last loop, counted by the gyro inputs
+        public double[] odometryDrivePositionsMeters =
+                new double[ControlConstants.ODOMETRY_BUFFER_SIZE];
+        public double[] odometryTurnPositionsRad =
+                new double[ControlConstants.ODOMETRY_BUFFER_SIZE];
     }
 
     /** Updates the set of loggable inputs. */
@@ -41,4 +38,23 @@ public interface SwerveModuleIO {
 
     /** Run the turn motor at the specified voltage. */
     default void setTurnVoltage(Measure<Voltage> volts) {}
+
+    /**
+     * Run the drive motor's onboard velocity loop at the specified velocity, adding the specified
+     * feedforward voltage.
+     */
+    default void setDriveVelocity(double velocityMetersPerSec, double feedforwardVolts) {}
+
+    /** Run the turn motor's onboard position loop to the specified module angle. */
+    default void setTurnPosition(double angleRad) {}
+
+    /** Reads the drive position in meters. Called from the odometry thread. */
+    default double getOdometryDrivePosition() {
+        return 0.0;
+    }
+
+    /** Reads the turn position in radians. Called from the odometry thread. */
+    default double getOdometryTurnPosition() {
+        return 0.0;
+    }
 }
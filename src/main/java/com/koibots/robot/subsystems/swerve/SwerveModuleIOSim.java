@@ -5,9 +5,10 @@ package com.koibots.robot.subsystems.swerve;
 
 import static edu.wpi.first.units.Units.*;
 
+import com.koibots.robot.Constants.ControlConstants;
 import com.koibots.robot.Constants.RobotConstants;
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Voltage;
@@ -15,47 +16,115 @@ import edu.wpi.first.wpilibj.simulation.DCMotorSim;
 
 public class SwerveModuleIOSim implements SwerveModuleIO {
     private static final double LOOP_PERIOD_SECS = 0.02;
+    private static final double ONBOARD_PERIOD_SECS = 0.001; // SparkMax closed loop rate
+    private static final double WHEEL_RADIUS_METERS =
+            RobotConstants.DRIVE_WHEELS.radius.in(Meters);
 
     private final DCMotorSim driveSim =
             new DCMotorSim(DCMotor.getNEO(1), RobotConstants.DRIVE_GEAR_RATIO, 0.025);
     private final DCMotorSim turnSim =
             new DCMotorSim(DCMotor.getNEO(1), RobotConstants.TURN_GEAR_RATIO, 0.004);
 
-    private Measure<Voltage> driveAppliedVolts = Volts.of(0);
-    private Measure<Voltage> turnAppliedVolts = Volts.of(0);
+    private double driveAppliedVolts = 0.0;
+    private double turnAppliedVolts = 0.0;
+
+    // Stand-ins for the SparkMax onboard loops
+    private final PIDController driveFeedback =
+            new PIDController(
+                    ControlConstants.DRIVE_PID_CONSTANTS.kP,
+                    ControlConstants.DRIVE_PID_CONSTANTS.kI,
+                    ControlConstants.DRIVE_PID_CONSTANTS.kD,
+                    ONBOARD_PERIOD_SECS);
+    private final PIDController turnFeedback =
+            new PIDController(
+                    ControlConstants.TURN_PID_CONSTANTS.kP,
+                    ControlConstants.TURN_PID_CONSTANTS.kI,
+                    ControlConstants.TURN_PID_CONSTANTS.kD,
+                    ONBOARD_PERIOD_SECS);
+    private boolean driveClosedLoop = false;
+    private boolean turnClosedLoop = false;
+    private double driveVelocitySetpoint = 0.0;
+    private double driveFeedforwardVolts = 0.0;
+    private double turnPositionSetpoint = 0.0;
+
+    public SwerveModuleIOSim() {
+        turnFeedback.enableContinuousInput(-Math.PI, Math.PI);
+    }
 
     @Override
     public void updateInputs(SwerveModuleInputs inputs) {
-        driveSim.update(LOOP_PERIOD_SECS);
-        turnSim.update(LOOP_PERIOD_SECS);
-
-        inputs.drivePosition =
-                RobotConstants.DRIVE_WHEELS.radius.times(driveSim.getAngularPositionRad());
-        inputs.driveVelocity =
-                RobotConstants.DRIVE_WHEELS
-                        .radius
-                        .times(driveSim.getAngularVelocityRadPerSec())
-                        .per(Second);
-        inputs.driveAppliedVoltage = driveAppliedVolts;
-        inputs.driveCurrent = Amps.of(driveSim.getCurrentDrawAmps());
-
-        inputs.turnPosition =
-                new Rotation2d(turnSim.getAngularPositionRad() % (2 * Math.PI))
-                        .minus(Rotation2d.fromRadians(Math.PI));
-        inputs.turnVelocity = RadiansPerSecond.of(turnSim.getAngularVelocityRadPerSec());
-        inputs.turnAppliedVoltage = turnAppliedVolts;
-        inputs.turnCurrent = Amps.of(turnSim.getCurrentDrawAmps());
+        if (driveClosedLoop || turnClosedLoop) {
+            // Step at the onboard rate so the emulated loops see every update
+            for (double t = 0; t < LOOP_PERIOD_SECS - 1e-9; t += ONBOARD_PERIOD_SECS) {
+                runOnboardLoops();
+                driveSim.update(ONBOARD_PERIOD_SECS);
+                turnSim.update(ONBOARD_PERIOD_SECS);
+            }
+        } else {
+            driveSim.update(LOOP_PERIOD_SECS);
+            turnSim.update(LOOP_PERIOD_SECS);
+        }
+
+        inputs.drivePositionMeters = driveSim.getAngularPositionRad() * WHEEL_RADIUS_METERS;
+        inputs.driveVelocityMetersPerSec =
+                driveSim.getAngularVelocityRadPerSec() * WHEEL_RADIUS_METERS;
+        inputs.driveAppliedVolts = driveAppliedVolts;
+        inputs.driveCurrentAmps = driveSim.getCurrentDrawAmps();
+
+        inputs.turnPositionRad = MathUtil.angleModulus(turnSim.getAngularPositionRad() - Math.PI);
+        inputs.turnVelocityRadPerSec = turnSim.getAngularVelocityRadPerSec();
+        inputs.turnAppliedVolts = turnAppliedVolts;
+        inputs.turnCurrentAmps = turnSim.getCurrentDrawAmps();
+    }
+
+    private void runOnboardLoops() {
+        if (driveClosedLoop) {
+            applyDriveVoltage(
+                    driveFeedback.calculate(
+                                    driveSim.getAngularVelocityRadPerSec() * WHEEL_RADIUS_METERS,
+                                    driveVelocitySetpoint)
+                            + driveFeedforwardVolts);
+        }
+        if (turnClosedLoop) {
+            applyTurnVoltage(
+                    turnFeedback.calculate(
+                            MathUtil.angleModulus(turnSim.getAngularPositionRad() - Math.PI),
+                            turnPositionSetpoint));
+        }
+    }
+
+    private void applyDriveVoltage(double volts) {
+        driveAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+        driveSim.setInputVoltage(driveAppliedVolts);
+    }
+
+    private void applyTurnVoltage(double volts) {
+        turnAppliedVolts = MathUtil.clamp(volts, -12.0, 12.0);
+        turnSim.setInputVoltage(turnAppliedVolts);
     }
 
     @Override
     public void setDriveVoltage(Measure<Voltage> voltage) {
-        driveAppliedVolts = voltage;
-        driveSim.setInputVoltage(driveAppliedVolts.in(Volts));
+        driveClosedLoop = false;
+        applyDriveVoltage(voltage.in(Volts));
     }
 
     @Override
     public void setTurnVoltage(Measure<Voltage> voltage) {
-        turnAppliedVolts = Volts.of(MathUtil.clamp(voltage.in(Volts), -12.0, 12.0));
-        turnSim.setInputVoltage(turnAppliedVolts.in(Volts));
+        turnClosedLoop = false;
+        applyTurnVoltage(voltage.in(Volts));
+    }
+
+    @Override
+    public void setDriveVelocity(double velocityMetersPerSec, double feedforwardVolts) {
+        driveClosedLoop = true;
+        driveVelocitySetpoint = velocityMetersPerSec;
+        driveFeedforwardVolts = feedforwardVolts;
+    }
+
+    @Override
+    public void setTurnPosition(double angleRad) {
+        turnClosedLoop = true;
+        turnPositionSetpoint = angleRad;
     }
 }
@@ -5,16 +5,21 @@ package com.koibots.robot.subsystems.swerve;
 
 import static edu.wpi.first.units.Units.*;
 
+import com.koibots.robot.Constants.ControlConstants;
 import com.koibots.robot.Constants.DeviceIDs;
 import com.koibots.robot.Constants.MotorConstants;
 import com.koibots.robot.Constants.RobotConstants;
 import com.koibots.robot.Constants.SensorConstants;
 import com.revrobotics.AbsoluteEncoder;
+import com.revrobotics.CANSparkBase.ControlType;
 import com.revrobotics.CANSparkLowLevel.MotorType;
+import com.revrobotics.CANSparkLowLevel.PeriodicFrame;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.RelativeEncoder;
 import com.revrobotics.SparkAbsoluteEncoder.Type;
-import edu.wpi.first.math.geometry.Rotation2d;
+import com.revrobotics.SparkPIDController;
+import com.revrobotics.SparkPIDController.ArbFFUnits;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.units.Measure;
 import edu.wpi.first.units.Voltage;
 
@@ -23,7 +28,9 @@ public class SwerveModuleIOSparkMax implements SwerveModuleIO {
     private final CANSparkMax turnMotor;
     private final RelativeEncoder driveEncoder;
     private final AbsoluteEncoder turnEncoder;
-    private Rotation2d chassisAngularOffset;
+    private final SparkPIDController driveController;
+    private final SparkPIDController turnController;
+    private double chassisAngularOffsetRad;
 
     public SwerveModuleIOSparkMax(int driveId, int turnId) {
 
@@ -48,6 +55,12 @@ public class SwerveModuleIOSparkMax implements SwerveModuleIO {
         driveMotor.setCANTimeout((int) MotorConstants.CAN_TIMEOUT.in(Millisecond));
         turnMotor.setCANTimeout((int) MotorConstants.CAN_TIMEOUT.in(Millisecond));
 
+        // Send positions as often as the odometry thread reads them
+        driveMotor.setPeriodicFramePeriod(
+                PeriodicFrame.kStatus2, (int) ControlConstants.ODOMETRY_PERIOD.in(Millisecond));
+        turnMotor.setPeriodicFramePeriod(
+                PeriodicFrame.kStatus5, (int) ControlConstants.ODOMETRY_PERIOD.in(Millisecond));
+
         driveEncoder = driveMotor.getEncoder();
         turnEncoder = turnMotor.getAbsoluteEncoder(Type.kDutyCycle);
 
@@ -64,38 +77,63 @@ public class SwerveModuleIOSparkMax implements SwerveModuleIO {
                 SensorConstants.TURNING_ENCODER_VELOCITY_FACTOR.in(RadiansPerSecond));
 
         if (turnId == DeviceIDs.FRONT_LEFT_TURN) {
-            chassisAngularOffset = Rotation2d.fromRadians((3 * Math.PI) / 2);
+            chassisAngularOffsetRad = (3 * Math.PI) / 2;
         } else if (turnId == DeviceIDs.FRONT_RIGHT_TURN) {
-            chassisAngularOffset = new Rotation2d(Math.PI);
+            chassisAngularOffsetRad = Math.PI;
         } else if (turnId == DeviceIDs.BACK_LEFT_TURN) {
-            chassisAngularOffset = Rotation2d.fromRadians(0);
+            chassisAngularOffsetRad = 0;
         } else if (turnId == DeviceIDs.BACK_RIGHT_TURN) {
-            chassisAngularOffset =
-                    Rotation2d.fromRadians(
-                            Math.PI / 2); // Rotation2d.fromDegrees((3 * Math.PI) / 2);
+            chassisAngularOffsetRad = Math.PI / 2; // (3 * Math.PI) / 2;
         }
 
         driveEncoder.setPosition(0.0);
         driveEncoder.setAverageDepth(SensorConstants.DRIVE_ENCODER_SAMPLING_DEPTH);
+
+        // Onboard loops output duty cycle, so scale the volt based gains by the compensated voltage
+        double nominalVoltage = RobotConstants.NOMINAL_VOLTAGE.in(Volts);
+
+        driveController = driveMotor.getPIDController();
+        driveController.setFeedbackDevice(driveEncoder);
+        driveController.setP(ControlConstants.DRIVE_PID_CONSTANTS.kP / nominalVoltage);
+        driveController.setI(ControlConstants.DRIVE_PID_CONSTANTS.kI / nominalVoltage);
+        driveController.setD(ControlConstants.DRIVE_PID_CONSTANTS.kD / nominalVoltage);
+        driveController.setFF(0); // Feedforward is sent with every setpoint
+
+        turnController = turnMotor.getPIDController();
+        turnController.setFeedbackDevice(turnEncoder);
+        turnController.setP(ControlConstants.TURN_PID_CONSTANTS.kP / nominalVoltage);
+        turnController.setI(ControlConstants.TURN_PID_CONSTANTS.kI / nominalVoltage);
+        turnController.setD(ControlConstants.TURN_PID_CONSTANTS.kD / nominalVoltage);
+        turnController.setPositionPIDWrappingEnabled(true);
+        turnController.setPositionPIDWrappingMinInput(0);
+        turnController.setPositionPIDWrappingMaxInput(
+                SensorConstants.TURNING_ENCODER_POSITION_FACTOR.in(Radians));
     }
 
     @Override
     public void updateInputs(SwerveModuleInputs inputs) {
-        inputs.drivePosition = Meters.of(driveEncoder.getPosition());
-        inputs.driveVelocity = MetersPerSecond.of(driveEncoder.getVelocity());
-        inputs.driveAppliedVoltage =
-                Volts.of(driveMotor.getBusVoltage()).times(driveMotor.getAppliedOutput());
-        inputs.driveCurrent = Amps.of(driveMotor.getOutputCurrent());
-
-        inputs.turnPosition =
-                Rotation2d.fromRadians(turnEncoder.getPosition())
-                        .plus(chassisAngularOffset)
-                        .minus(Rotation2d.fromRadians(Math.PI));
-
-        inputs.turnVelocity = RadiansPerSecond.of(turnEncoder.getVelocity());
-        inputs.turnAppliedVoltage =
-                Volts.of(turnMotor.getBusVoltage()).times(turnMotor.getAppliedOutput());
-        inputs.turnCurrent = Amps.of(turnMotor.getOutputCurrent());
+        inputs.drivePositionMeters = driveEncoder.getPosition();
+        inputs.driveVelocityMetersPerSec = driveEncoder.getVelocity();
+        inputs.driveAppliedVolts = driveMotor.getBusVoltage() * driveMotor.getAppliedOutput();
+        inputs.driveCurrentAmps = driveMotor.getOutputCurrent();
+
+        inputs.turnPositionRad =
+                MathUtil.angleModulus(
+                        turnEncoder.getPosition() + chassisAngularOffsetRad - Math.PI);
+
+        inputs.turnVelocityRadPerSec = turnEncoder.getVelocity();
+        inputs.turnAppliedVolts = turnMotor.getBusVoltage() * turnMotor.getAppliedOutput();
+        inputs.turnCurrentAmps = turnMotor.getOutputCurrent();
+    }
+
+    @Override
+    public double getOdometryDrivePosition() {
+        return driveEncoder.getPosition();
+    }
+
+    @Override
+    public double getOdometryTurnPosition() {
+        return turnEncoder.getPosition() + chassisAngularOffsetRad - Math.PI;
     }
 
     @Override
@@ -107,4 +145,23 @@ public class SwerveModuleIOSparkMax implements SwerveModuleIO {
     public void setTurnVoltage(Measure<Voltage> voltage) {
         turnMotor.setVoltage(voltage.in(Volts));
     }
+
+    @Override
+    public void setDriveVelocity(double velocityMetersPerSec, double feedforwardVolts) {
+        driveController.setReference(
+                velocityMetersPerSec,
+                ControlType.kVelocity,
+                0,
+                feedforwardVolts,
+                ArbFFUnits.kVoltage);
+    }
+
+    @Override
+    public void setTurnPosition(double angleRad) {
+        // Undo the offsets from updateInputs to get back to the encoder's frame
+        turnController.setReference(
+                MathUtil.inputModulus(
+                        angleRad - chassisAngularOffsetRad + Math.PI, 0, 2 * Math.PI),
+                ControlType.kPosition);
+    }
 }
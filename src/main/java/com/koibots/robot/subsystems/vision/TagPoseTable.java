@@ -0,0 +1,96 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.vision;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFieldLayout.OriginPosition;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * Field poses of every AprilTag flattened into primitive arrays indexed by tag ID, so looking up a
+ * tag doesn't go through an {@link java.util.Optional} and a {@link
+ * edu.wpi.first.math.geometry.Pose3d}. Rebuilt only when the alliance changes.
+ *
+ * <p>The red origin is the one Vision has always used, the blue origin turned around at the red
+ * wall, so red y values come out negative. That isn't the frame the autos assume for red, which
+ * keep y and mirror x (see {@link com.koibots.lib.trajectory.Trajectory#flipped(double)}).
+ */
+public class TagPoseTable {
+    private final AprilTagFieldLayout layout;
+
+    private final double[] x;
+    private final double[] y;
+    private final double[] yaw;
+    private final boolean[] present;
+
+    private Alliance alliance = null;
+
+    public TagPoseTable(AprilTagFieldLayout layout) {
+        this.layout = layout;
+
+        int maxId = 0;
+        for (AprilTag tag : layout.getTags()) {
+            maxId = Math.max(maxId, tag.ID);
+        }
+
+        x = new double[maxId + 1];
+        y = new double[maxId + 1];
+        yaw = new double[maxId + 1];
+        present = new boolean[maxId + 1];
+    }
+
+    /** Recomputes the table in the given alliance's coordinates. Does nothing if it already is. */
+    public void setAlliance(Alliance alliance) {
+        if (alliance == this.alliance) {
+            return;
+        }
+        this.alliance = alliance;
+
+        if (alliance == Alliance.Red) {
+            layout.setOrigin(
+                    new Pose3d(layout.getFieldLength(), 0, 0, new Rotation3d(0, 0, Math.PI)));
+        } else {
+            layout.setOrigin(OriginPosition.kBlueAllianceWallRightSide);
+        }
+
+        for (AprilTag tag : layout.getTags()) {
+            // getTagPose applies the origin, tag.pose is always blue relative
+            layout.getTagPose(tag.ID)
+                    .ifPresent(
+                            pose -> {
+                                x[tag.ID] = pose.getX();
+                                y[tag.ID] = pose.getY();
+                                yaw[tag.ID] = pose.getRotation().getZ();
+                                present[tag.ID] = true;
+                            });
+        }
+    }
+
+    public boolean hasTag(int id) {
+        return id >= 0 && id < present.length && present[id];
+    }
+
+    public double getX(int id) {
+        return x[id];
+    }
+
+    public double getY(int id) {
+        return y[id];
+    }
+
+    public double getYaw(int id) {
+        return yaw[id];
+    }
+
+    public double getFieldLength() {
+        return layout.getFieldLength();
+    }
+
+    public double getFieldWidth() {
+        return layout.getFieldWidth();
+    }
+}
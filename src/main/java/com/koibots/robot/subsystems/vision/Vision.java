@@ -3,145 +3,329 @@
 
 package com.koibots.robot.subsystems.vision;
 
-import static com.koibots.robot.subsystems.Subsystems.Swerve;
-import static edu.wpi.first.units.Units.Meters;
+import static edu.wpi.first.units.Units.Seconds;
 
+import com.koibots.lib.util.LoopProfiler;
 import com.koibots.robot.Constants.VisionConstants;
+import com.koibots.robot.subsystems.Subsystems;
+import com.koibots.robot.subsystems.swerve.Swerve;
 import edu.wpi.first.apriltag.AprilTagFieldLayout;
-import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.Nat;
+import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Rotation3d;
-import edu.wpi.first.math.numbers.*;
-import edu.wpi.first.networktables.DoubleArraySubscriber;
-import edu.wpi.first.networktables.IntegerSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableInstance;
-import edu.wpi.first.networktables.TimestampedDoubleArray;
-import edu.wpi.first.networktables.TimestampedInteger;
+import edu.wpi.first.networktables.NetworkTablesJNI;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.RawSubscriber;
+import edu.wpi.first.networktables.TimestampedRaw;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.littletonrobotics.junction.Logger;
 
 public class Vision extends SubsystemBase {
 
-    private final DoubleArraySubscriber[][] vecSubscribers;
-    private final IntegerSubscriber[] idSubscribers;
+    private final RawSubscriber[] frameSubscribers;
+    private final VisionFrame frame = new VisionFrame(VisionConstants.MAX_TAGS_PER_FRAME);
+    private final AtomicInteger malformedFrames = new AtomicInteger();
+    private final AtomicInteger staleFrames = new AtomicInteger();
 
-    private AprilTagFieldLayout layout;
+    // Capture to fusion latency of each camera's newest frame, written by the vision thread
+    private final AtomicLongArray cameraLatencyMicros = new AtomicLongArray(4);
+    private final String[] cameraLatencyKeys = {
+        "Vision/Cam1/LatencyMs",
+        "Vision/Cam2/LatencyMs",
+        "Vision/Cam3/LatencyMs",
+        "Vision/Cam4/LatencyMs"
+    };
+
+    private TagPoseTable tagPoses;
+    private final LoopProfiler.Phase periodicProfile = LoopProfiler.register("Vision");
+
+    // Solving runs on this thread, results come back to the main loop through the queue
+    private final Notifier visionThread;
+    private final VisionMeasurementQueue measurements =
+            new VisionMeasurementQueue(VisionConstants.MEASUREMENT_QUEUE_SIZE);
+    private final double[] measurement = new double[VisionMeasurementQueue.FIELDS];
+    private final double[] poseAtCapture = new double[3]; // x, y, theta
+    private final VisionMeasurementBatch batch =
+            new VisionMeasurementBatch(
+                    VisionConstants.MEASUREMENT_QUEUE_SIZE,
+                    VisionConstants.FUSION_WINDOW.in(Seconds));
+    private final AtomicInteger droppedMeasurements = new AtomicInteger();
+    private Pose2d lastEstimatedPose = null;
+    private double distanceSinceCorrection = 0;
+    private final Swerve swerve;
+
+    // Scratch space so solving a detection doesn't allocate, only touched by the vision thread
+    private final double[] rotationMatrix = new double[9]; // Negated coprocessor rotation
+    private final double[] tagToCamera = new double[3];
+    private final double[] fieldPose = new double[3]; // x, y, theta
 
     public Vision() {
-        vecSubscribers = new DoubleArraySubscriber[4][2];
-        idSubscribers = new IntegerSubscriber[4];
+        // Grabbed here so the vision thread never constructs the drive
+        swerve = Subsystems.Swerve.get();
+
+        frameSubscribers = new RawSubscriber[4];
         NetworkTable table = NetworkTableInstance.getDefault().getTable("fisheye");
         for (int a = 0; a < 4; a++) {
-            idSubscribers[a] =
-                    table.getIntegerTopic(VisionConstants.TOPIC_NAMES[a][2])
-                            .subscribe(VisionConstants.ID_DEFAULT_VALUE);
-            for (int b = 0; b < 2; b++) {
-                vecSubscribers[a][b] =
-                        table.getDoubleArrayTopic(VisionConstants.TOPIC_NAMES[a][b])
-                                .subscribe(VisionConstants.VECTOR_DEFAULT_VALUE);
-            }
+            // Keep every frame between vision thread runs instead of only the newest
+            frameSubscribers[a] =
+                    table.getRawTopic(VisionConstants.FRAME_TOPIC_NAMES[a])
+                            .subscribe(
+                                    "raw",
+                                    new byte[0],
+                                    PubSubOption.sendAll(true),
+                                    PubSubOption.pollStorage(VisionConstants.FRAME_QUEUE_DEPTH));
         }
 
         try {
-            layout = new AprilTagFieldLayout("src/main/deploy/apriltag/2024-crescendo.json");
+            tagPoses =
+                    new TagPoseTable(
+                            new AprilTagFieldLayout(
+                                    Filesystem.getDeployDirectory()
+                                            + "/apriltag/2024-crescendo.json"));
+            tagPoses.setAlliance(DriverStation.getAlliance().orElse(Alliance.Blue));
         } catch (IOException e) {
             System.err.println("ERROR: Could not find apriltag field layout!");
         }
 
-        if (DriverStation.getAlliance().isPresent()) {
-            if (DriverStation.getAlliance().get() == Alliance.Red) {
-                layout.setOrigin(
-                        new Pose3d(layout.getFieldLength(), 0, 0, new Rotation3d(0, 0, Math.PI)));
-            }
-        } else {
+        if (DriverStation.getAlliance().isEmpty()) {
             System.err.println("ERROR: Could not determine alliance!");
         }
+
+        visionThread = new Notifier(this::solveDetections);
+        visionThread.setName("VisionThread");
+        if (tagPoses != null) {
+            visionThread.startPeriodic(VisionConstants.VISION_PERIOD.in(Seconds));
+        }
     }
 
-    private Pose2d translateToFieldPose(
+    /**
+     * Solves the robot's field pose from one tag detection into {@link #fieldPose}.
+     *
+     * @return False if the tag isn't on the field
+     */
+    private boolean translateToFieldPose(
             double[] translation, double[] rotation, int tagId, int camera) {
-        int count = 0;
-        Matrix<N3, N3> rotMatrix = new Matrix<>(Nat.N3(), Nat.N3());
+        if (!tagPoses.hasTag(tagId)) {
+            return false;
+        }
+
+        for (int a = 0; a < 9; a++) {
+            rotationMatrix[a] = -rotation[a];
+        }
+
+        // Read as column major, so this is the transposed rotation times the tvec
         for (int a = 0; a < 3; a++) {
-            for (int b = 0; b < 3; b++) {
-                rotMatrix.set(b, a, -rotation[count]);
-                count++;
-            }
+            tagToCamera[a] =
+                    rotationMatrix[a] * translation[0]
+                            + rotationMatrix[3 + a] * translation[1]
+                            + rotationMatrix[6 + a] * translation[2];
         }
 
-        Matrix<N3, N1> transVec = new Matrix<>(Nat.N3(), Nat.N1());
-        transVec.set(0, 0, translation[0]);
-        transVec.set(1, 0, translation[1]);
-        transVec.set(2, 0, translation[2]);
-        Matrix<N3, N1> tagToCamTrans = rotMatrix.times(transVec);
-        tagToCamTrans.set(
-                0,
-                0,
-                (layout.getTagPose(tagId).get().getRotation().toRotation2d().getRadians() < Math.PI)
-                        ? tagToCamTrans.get(0, 0)
-                        : tagToCamTrans.get(0, 0) * -1);
-
-        double hypotenuse = Math.hypot(tagToCamTrans.get(0, 0), tagToCamTrans.get(0, 2));
-
-        double hypangle =
-                layout.getTagPose(tagId).get().getRotation().toRotation2d().getRadians()
-                        - Math.atan(tagToCamTrans.get(0, 0) / tagToCamTrans.get(0, 2));
-
-        Pose2d camPose =
-                new Pose2d(
-                        layout.getTagPose(tagId).get().getRotation().getX()
-                                + (hypotenuse * Math.cos(hypangle)),
-                        layout.getTagPose(tagId).get().getY() + (hypotenuse * Math.sin(hypangle)),
-                        new Rotation2d());
-
-        hypotenuse =
-                Math.hypot(
-                        VisionConstants.CAMERA_POSITIONS[camera].getX(),
-                        VisionConstants.CAMERA_POSITIONS[camera].getY());
+        double tagYaw = tagPoses.getYaw(tagId);
+        if (tagYaw >= Math.PI) {
+            tagToCamera[0] *= -1;
+        }
 
-        hypangle =
-                VisionConstants.CAMERA_POSITIONS[camera].getRotation().getRadians()
-                        + Swerve.get().getGyroAngle().getRadians()
-                        + 90;
+        double hypotenuse = Math.hypot(tagToCamera[0], tagToCamera[2]);
+        double hypangle = tagYaw - Math.atan(tagToCamera[0] / tagToCamera[2]);
 
-        Rotation3d rot = new Rotation3d(rotMatrix.transpose().times(-1));
+        double cameraX = tagPoses.getX(tagId) + (hypotenuse * Math.cos(hypangle));
+        double cameraY = tagPoses.getY(tagId) + (hypotenuse * Math.sin(hypangle));
+
+        Pose2d cameraPosition = VisionConstants.CAMERA_POSITIONS[camera];
+        hypotenuse = Math.hypot(cameraPosition.getX(), cameraPosition.getY());
+        hypangle =
+                cameraPosition.getRotation().getRadians()
+                        + swerve.getGyroAngle().getRadians()
+                        + (Math.PI / 2);
 
-        return new Pose2d(
-                camPose.getX() + (hypotenuse * Math.cos(hypangle)),
-                camPose.getY() + (hypotenuse * Math.sin(hypangle)),
-                new Rotation2d(rot.getY())); // TODO: Double check where 0 is on this vs gyro
+        fieldPose[0] = cameraX + (hypotenuse * Math.cos(hypangle));
+        fieldPose[1] = cameraY + (hypotenuse * Math.sin(hypangle));
+        // Pitch of the rotation read as row major, TODO: Double check where 0 is on this vs gyro
+        fieldPose[2] = Math.asin(MathUtil.clamp(-rotation[6], -1, 1));
+        return true;
     }
 
-    @Override
-    public void periodic() {
+    /** Drains the NT queues and solves every detection. Runs on the vision thread. */
+    private void solveDetections() {
+        // The alliance can only change while disabled
+        if (DriverStation.isDisabled()) {
+            DriverStation.getAlliance().ifPresent(tagPoses::setAlliance);
+        }
+
+        // NT timestamps are microseconds in NT time, which matches the FPGA clock on the RIO but
+        // not in sim, so convert through the current offset between the two
+        double now = Timer.getFPGATimestamp();
+        double ntToFpgaOffset =
+                now
+                        - ((NetworkTablesJNI.now()
+                                        + NetworkTableInstance.getDefault()
+                                                .getServerTimeOffset()
+                                                .orElse(0))
+                                * 1e-6);
+        double maxAge = VisionConstants.MAX_FRAME_AGE.in(Seconds);
+
         for (int a = 0; a < 4; a++) {
-            TimestampedDoubleArray[] tvec = vecSubscribers[a][0].readQueue();
-            TimestampedDoubleArray[] rvec = vecSubscribers[a][1].readQueue();
-            TimestampedInteger[] ids = idSubscribers[a].readQueue();
-            for (int b = 0; b < ids.length; b++) {
-                if (rvec[b].timestamp == tvec[b].timestamp
-                        && tvec[b].timestamp == ids[b].timestamp) {
-                    Pose2d pose =
-                            translateToFieldPose(
-                                    tvec[b].value, rvec[b].value, (int) ids[a].value, a);
-                    if (pose.getX() > 0
-                            && pose.getX() < layout.getFieldWidth()
-                            && pose.getY() > 0
-                            && pose.getY() < layout.getFieldLength()
-                            && Math.abs(pose.getX() - Swerve.get().getEstimatedPose().getX())
-                                    < VisionConstants.MAX_MEASUREMENT_DIFFERENCE.in(Meters)
-                            && Math.abs(pose.getY() - Swerve.get().getEstimatedPose().getY())
-                                    < VisionConstants.MAX_MEASUREMENT_DIFFERENCE.in(Meters)) {
-                        Swerve.get().addVisionMeasurement(pose, (double) ids[b].timestamp);
+            TimestampedRaw[] frames = frameSubscribers[a].readQueue();
+            for (int b = 0; b < frames.length; b++) {
+                if (!frame.decode(frames[b].value)) {
+                    malformedFrames.incrementAndGet();
+                    continue;
+                }
+
+                // Publish time in server time, minus how long the pipeline took before that
+                double captureTimestamp =
+                        (frames[b].serverTime - frame.latencyMicros) * 1e-6 + ntToFpgaOffset;
+                cameraLatencyMicros.set(a, (long) ((now - captureTimestamp) * 1e6));
+                if (now - captureTimestamp > maxAge) {
+                    staleFrames.incrementAndGet();
+                    continue;
+                }
+
+                // Other tags in the frame let the coprocessor resolve pose ambiguity, and the
+                // batch already tightens std devs when it fuses them
+                boolean singleTag = frame.tagCount == 1;
+                if (singleTag && frame.ambiguities[0] > VisionConstants.MAX_SINGLE_TAG_AMBIGUITY) {
+                    continue;
+                }
+
+                for (int c = 0; c < frame.tagCount; c++) {
+                    if (!translateToFieldPose(
+                                    frame.translations[c], frame.rotations[c], frame.ids[c], a)
+                            || fieldPose[0] < 0
+                            || fieldPose[0] > tagPoses.getFieldLength()
+                            || fieldPose[1] < 0
+                            || fieldPose[1] > tagPoses.getFieldWidth()) {
+                        continue;
+                    }
+
+                    double[] translation = frame.translations[c];
+                    double stdDevFactor =
+                            (translation[0] * translation[0]
+                                            + translation[1] * translation[1]
+                                            + translation[2] * translation[2])
+                                    * (1 + VisionConstants.AMBIGUITY_STD_DEV_SCALE
+                                            * frame.ambiguities[c])
+                                    * (singleTag
+                                            ? VisionConstants.SINGLE_TAG_STD_DEV_MULTIPLIER
+                                            : 1);
+                    double xyStdDev = VisionConstants.XY_STD_DEV_COEFFICIENT * stdDevFactor;
+
+                    if (!measurements.offer(
+                            fieldPose[0],
+                            fieldPose[1],
+                            fieldPose[2],
+                            captureTimestamp,
+                            xyStdDev,
+                            xyStdDev,
+                            VisionConstants.THETA_STD_DEV_COEFFICIENT * stdDevFactor)) {
+                        droppedMeasurements.incrementAndGet();
                     }
                 }
             }
         }
     }
+
+    private static double mahalanobisTerm(double innovation, double stateStdDev, double stdDev) {
+        return (innovation * innovation) / ((stateStdDev * stateStdDev) + (stdDev * stdDev));
+    }
+
+    @Override
+    public void periodic() {
+        periodicProfile.start();
+
+        // The estimator isn't thread safe, so gating against it happens here. The estimator doesn't
+        // expose its covariance, so the odometry std devs grown by the distance driven since the
+        // last correction stand in for it
+        Pose2d estimatedPose = swerve.getEstimatedPose();
+        if (lastEstimatedPose != null) {
+            distanceSinceCorrection +=
+                    Math.hypot(
+                            estimatedPose.getX() - lastEstimatedPose.getX(),
+                            estimatedPose.getY() - lastEstimatedPose.getY());
+        }
+        lastEstimatedPose = estimatedPose;
+        double drift = VisionConstants.ODOMETRY_DRIFT_PER_METER * distanceSinceCorrection;
+
+        batch.clear();
+        int received = 0;
+        int rejected = 0;
+        while (measurements.poll(measurement)) {
+            received++;
+
+            // Compared to where the robot was when the frame was captured, not where it is now
+            if (!swerve.getEstimatedPoseAt(
+                    measurement[VisionMeasurementQueue.TIMESTAMP], poseAtCapture)) {
+                poseAtCapture[0] = estimatedPose.getX();
+                poseAtCapture[1] = estimatedPose.getY();
+                poseAtCapture[2] = estimatedPose.getRotation().getRadians();
+            }
+
+            // Squared Mahalanobis distance of the innovation, axes treated as independent
+            double distance =
+                    mahalanobisTerm(
+                                    measurement[VisionMeasurementQueue.X] - poseAtCapture[0],
+                                    VisionConstants.ODOMETRY_STD_DEVS[0] + drift,
+                                    measurement[VisionMeasurementQueue.X_STD_DEV])
+                            + mahalanobisTerm(
+                                    measurement[VisionMeasurementQueue.Y] - poseAtCapture[1],
+                                    VisionConstants.ODOMETRY_STD_DEVS[1] + drift,
+                                    measurement[VisionMeasurementQueue.Y_STD_DEV])
+                            + mahalanobisTerm(
+                                    MathUtil.angleModulus(
+                                            measurement[VisionMeasurementQueue.THETA]
+                                                    - poseAtCapture[2]),
+                                    VisionConstants.ODOMETRY_STD_DEVS[2],
+                                    measurement[VisionMeasurementQueue.THETA_STD_DEV]);
+            if (distance > VisionConstants.MAHALANOBIS_THRESHOLD) {
+                rejected++;
+                continue;
+            }
+            batch.add(measurement);
+        }
+
+        // Every correction replays the estimator's history, so only apply the newest few
+        int fused = batch.fuse();
+        int applied = 0;
+        for (int a = Math.max(0, fused - VisionConstants.MAX_MEASUREMENTS_PER_CYCLE);
+                a < fused;
+                a++) {
+            double[] correction = batch.get(a);
+            swerve.addVisionMeasurement(
+                    new Pose2d(
+                            correction[VisionMeasurementQueue.X],
+                            correction[VisionMeasurementQueue.Y],
+                            Rotation2d.fromRadians(correction[VisionMeasurementQueue.THETA])),
+                    correction[VisionMeasurementQueue.TIMESTAMP],
+                    correction[VisionMeasurementQueue.X_STD_DEV],
+                    correction[VisionMeasurementQueue.Y_STD_DEV],
+                    correction[VisionMeasurementQueue.THETA_STD_DEV]);
+            applied++;
+        }
+        if (applied > 0) {
+            distanceSinceCorrection = 0;
+        }
+
+        Logger.recordOutput("Vision/ReceivedMeasurements", received);
+        Logger.recordOutput("Vision/RejectedMeasurements", rejected);
+        Logger.recordOutput("Vision/AppliedMeasurements", applied);
+        Logger.recordOutput("Vision/DroppedMeasurements", droppedMeasurements.get());
+        Logger.recordOutput("Vision/MalformedFrames", malformedFrames.get());
+        Logger.recordOutput("Vision/StaleFrames", staleFrames.get());
+        for (int a = 0; a < 4; a++) {
+            Logger.recordOutput(cameraLatencyKeys[a], cameraLatencyMicros.get(a) / 1e3);
+        }
+
+        periodicProfile.stop();
+    }
 }
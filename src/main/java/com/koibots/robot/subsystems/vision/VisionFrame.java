@@ -0,0 +1,92 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.vision;
+
+/**
+ * One camera frame from the coprocessor, decoded from the packed raw topic into reused primitive
+ * arrays. Everything is little endian:
+ *
+ * <pre>
+ * int64   capture timestamp, coprocessor clock in microseconds
+ * int64   pipeline latency from capture to publish, in microseconds
+ * int32   tag count
+ * per tag:
+ *   int32      tag ID
+ *   float64[3] tvec
+ *   float64[9] rvec (rotation matrix)
+ *   float64    ambiguity, ratio of the best to alternate reprojection error
+ * </pre>
+ *
+ * <p>The robot times frames from the NT publish time minus the latency, since that is already in
+ * server time. The capture timestamp only identifies the frame.
+ */
+public class VisionFrame {
+    private static final int HEADER_BYTES = 8 + 8 + 4;
+    private static final int TAG_BYTES = 4 + (3 * 8) + (9 * 8) + 8;
+
+    public long captureTimestampMicros;
+    public long latencyMicros;
+    public int tagCount;
+
+    public final int[] ids;
+    public final double[][] translations;
+    public final double[][] rotations;
+    public final double[] ambiguities;
+
+    public VisionFrame(int maxTags) {
+        ids = new int[maxTags];
+        translations = new double[maxTags][3];
+        rotations = new double[maxTags][9];
+        ambiguities = new double[maxTags];
+    }
+
+    /**
+     * Decodes a packed frame into this object. Tags past the max tag count are ignored.
+     *
+     * @return False if the data is malformed, in which case the frame holds no tags
+     */
+    public boolean decode(byte[] data) {
+        tagCount = 0;
+        if (data.length < HEADER_BYTES) {
+            return false;
+        }
+
+        captureTimestampMicros = readLong(data, 0);
+        latencyMicros = readLong(data, 8);
+        int count = readInt(data, 16);
+        if (count < 0 || data.length < HEADER_BYTES + (count * TAG_BYTES)) {
+            return false;
+        }
+
+        count = Math.min(count, ids.length);
+        int offset = HEADER_BYTES;
+        for (int a = 0; a < count; a++) {
+            ids[a] = readInt(data, offset);
+            offset += 4;
+            for (int b = 0; b < 3; b++) {
+                translations[a][b] = Double.longBitsToDouble(readLong(data, offset));
+                offset += 8;
+            }
+            for (int b = 0; b < 9; b++) {
+                rotations[a][b] = Double.longBitsToDouble(readLong(data, offset));
+                offset += 8;
+            }
+            ambiguities[a] = Double.longBitsToDouble(readLong(data, offset));
+            offset += 8;
+        }
+        tagCount = count;
+        return true;
+    }
+
+    private static int readInt(byte[] data, int offset) {
+        return (data[offset] & 0xFF)
+                | ((data[offset + 1] & 0xFF) << 8)
+                | ((data[offset + 2] & 0xFF) << 16)
+                | ((data[offset + 3] & 0xFF) << 24);
+    }
+
+    private static long readLong(byte[] data, int offset) {
+        return (readInt(data, offset) & 0xFFFFFFFFL) | ((long) readInt(data, offset + 4) << 32);
+    }
+}
@@ -0,0 +1,116 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.vision;
+
+import static com.koibots.robot.subsystems.vision.VisionMeasurementQueue.*;
+
+/**
+ * Collects one cycle's vision measurements and fuses the ones taken at the same time, so the pose
+ * estimator replays its history once per capture instead of once per tag. Measurements within the
+ * fusion window of each other are combined with inverse variance weighting.
+ */
+public class VisionMeasurementBatch {
+    private final double[][] measurements;
+    private final double fusionWindow;
+    private int size = 0;
+
+    public VisionMeasurementBatch(int capacity, double fusionWindowSeconds) {
+        measurements = new double[capacity][FIELDS];
+        fusionWindow = fusionWindowSeconds;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /** @return False if the batch is full and the measurement was ignored */
+    public boolean add(double[] measurement) {
+        if (size == measurements.length) {
+            return false;
+        }
+        System.arraycopy(measurement, 0, measurements[size], 0, FIELDS);
+        size++;
+        return true;
+    }
+
+    /**
+     * Sorts the batch by timestamp and fuses it in place.
+     *
+     * @return The number of fused measurements, readable with {@link #get(int)} oldest first
+     */
+    public int fuse() {
+        // Insertion sort, the batch is small and usually close to sorted already
+        for (int a = 1; a < size; a++) {
+            double[] current = measurements[a];
+            int b = a - 1;
+            while (b >= 0 && measurements[b][TIMESTAMP] > current[TIMESTAMP]) {
+                measurements[b + 1] = measurements[b];
+                b--;
+            }
+            measurements[b + 1] = current;
+        }
+
+        int fused = 0;
+        int start = 0;
+        while (start < size) {
+            int end = start + 1;
+            while (end < size
+                    && measurements[end][TIMESTAMP] - measurements[start][TIMESTAMP]
+                            <= fusionWindow) {
+                end++;
+            }
+            fuseGroup(start, end, fused);
+            fused++;
+            start = end;
+        }
+
+        size = fused;
+        return fused;
+    }
+
+    /** Combines measurements [start, end) into the slot at target, which is never past start. */
+    private void fuseGroup(int start, int end, int target) {
+        double xWeight = 0, x = 0;
+        double yWeight = 0, y = 0;
+        double thetaWeight = 0, thetaCos = 0, thetaSin = 0;
+        double timestamp = 0;
+
+        for (int a = start; a < end; a++) {
+            double[] measurement = measurements[a];
+
+            double weight = 1 / (measurement[X_STD_DEV] * measurement[X_STD_DEV]);
+            x += measurement[X] * weight;
+            xWeight += weight;
+
+            weight = 1 / (measurement[Y_STD_DEV] * measurement[Y_STD_DEV]);
+            y += measurement[Y] * weight;
+            yWeight += weight;
+
+            // Average angles on the unit circle so they don't break across +-pi
+            weight = 1 / (measurement[THETA_STD_DEV] * measurement[THETA_STD_DEV]);
+            thetaCos += Math.cos(measurement[THETA]) * weight;
+            thetaSin += Math.sin(measurement[THETA]) * weight;
+            thetaWeight += weight;
+
+            timestamp += measurement[TIMESTAMP];
+        }
+
+        // Swap rather than copy so the slot arrays stay distinct
+        double[] result = measurements[start];
+        measurements[start] = measurements[target];
+        measurements[target] = result;
+
+        result[X] = x / xWeight;
+        result[Y] = y / yWeight;
+        result[THETA] = Math.atan2(thetaSin, thetaCos);
+        result[TIMESTAMP] = timestamp / (end - start);
+        result[X_STD_DEV] = Math.sqrt(1 / xWeight);
+        result[Y_STD_DEV] = Math.sqrt(1 / yWeight);
+        result[THETA_STD_DEV] = Math.sqrt(1 / thetaWeight);
+    }
+
+    public double[] get(int index) {
+        return measurements[index];
+    }
+}
@@ -0,0 +1,84 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.vision;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded lock-free queue for handing solved vision measurements from the vision thread to the main
+ * loop. Only safe with exactly one producer thread and one consumer thread. Measurements are stored
+ * as primitives in preallocated slots, and offers are dropped while the queue is full.
+ */
+public class VisionMeasurementQueue {
+    public static final int X = 0;
+    public static final int Y = 1;
+    public static final int THETA = 2;
+    public static final int TIMESTAMP = 3;
+    public static final int X_STD_DEV = 4;
+    public static final int Y_STD_DEV = 5;
+    public static final int THETA_STD_DEV = 6;
+    public static final int FIELDS = 7;
+
+    private final int capacity;
+    private final double[] slots;
+
+    private final AtomicLong head = new AtomicLong(); // Next slot to read, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next slot to write, written by the producer
+
+    public VisionMeasurementQueue(int capacity) {
+        this.capacity = capacity;
+        slots = new double[capacity * FIELDS];
+    }
+
+    /**
+     * Adds a measurement. Producer thread only.
+     *
+     * @return False if the queue was full and the measurement was dropped
+     */
+    public boolean offer(
+            double x,
+            double y,
+            double theta,
+            double timestamp,
+            double xStdDev,
+            double yStdDev,
+            double thetaStdDev) {
+        long index = tail.get();
+        if (index - head.get() >= capacity) {
+            return false;
+        }
+
+        int offset = (int) (index % capacity) * FIELDS;
+        slots[offset + X] = x;
+        slots[offset + Y] = y;
+        slots[offset + THETA] = theta;
+        slots[offset + TIMESTAMP] = timestamp;
+        slots[offset + X_STD_DEV] = xStdDev;
+        slots[offset + Y_STD_DEV] = yStdDev;
+        slots[offset + THETA_STD_DEV] = thetaStdDev;
+
+        // Publishes the slot writes to the consumer
+        tail.lazySet(index + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest measurement. Consumer thread only.
+     *
+     * @param out Receives the measurement, indexed by the field constants in this class
+     * @return False if the queue was empty
+     */
+    public boolean poll(double[] out) {
+        long index = head.get();
+        if (index == tail.get()) {
+            return false;
+        }
+
+        System.arraycopy(slots, (int) (index % capacity) * FIELDS, out, 0, FIELDS);
+
+        // Hands the slot back to the producer
+        head.lazySet(index + 1);
+        return true;
+    }
+}
@@ -0,0 +1,119 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.trajectory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import org.junit.jupiter.api.Test;
+
+public class StraightLineGeneratorTest {
+    private static final double DELTA = 1e-9;
+
+    // 2 m/s and 4 m/s/s, so reaching full speed takes 0.5 s and 0.5 m
+    private final StraightLineGenerator generator =
+            new StraightLineGenerator(2, 4, Math.PI, 2 * Math.PI);
+
+    private static final Pose2d ORIGIN = new Pose2d();
+
+    private static double speed(Trajectory trajectory, int index) {
+        return Math.hypot(trajectory.getVelocityX(index), trajectory.getVelocityY(index));
+    }
+
+    @Test
+    public void restToRest() {
+        Pose2d end = new Pose2d(4, 0, new Rotation2d());
+        Trajectory trajectory = generator.generate(ORIGIN, end);
+
+        // 0.5 s speeding up, 3 m cruising for 1.5 s, 0.5 s slowing down
+        assertEquals(2.5, generator.duration(ORIGIN, end, 0, 0), DELTA);
+        assertEquals(2.5, trajectory.getTotalTime(), DELTA);
+
+        int last = trajectory.length() - 1;
+        assertEquals(0, speed(trajectory, 0), DELTA);
+        assertEquals(0, speed(trajectory, last), DELTA);
+        assertEquals(4, trajectory.getX(last), DELTA);
+        assertEquals(0, trajectory.getY(last), DELTA);
+
+        // A second in, it's cruising at full speed
+        int cruising = (int) Math.round(1 / StraightLineGenerator.SAMPLE_PERIOD);
+        assertEquals(1, trajectory.getTimestamp(cruising), DELTA);
+        assertEquals(2, speed(trajectory, cruising), DELTA);
+        assertEquals(1.5, trajectory.getX(cruising), DELTA);
+    }
+
+    @Test
+    public void tooShortToReachFullSpeed() {
+        Pose2d end = new Pose2d(0, 0.5, new Rotation2d());
+
+        // Peaks at sqrt(4 * 0.5) m/s halfway
+        double peak = Math.sqrt(2);
+        assertEquals(2 * peak / 4, generator.duration(ORIGIN, end, 0, 0), DELTA);
+
+        Trajectory trajectory = generator.generate(ORIGIN, end);
+        assertEquals(0.5, trajectory.getY(trajectory.length() - 1), DELTA);
+        assertEquals(0, speed(trajectory, trajectory.length() - 1), DELTA);
+    }
+
+    @Test
+    public void endsMoving() {
+        Pose2d end = new Pose2d(4, 0, new Rotation2d());
+        Trajectory trajectory = generator.generate(ORIGIN, end, 0, 1);
+
+        // 0.5 s up to 2 m/s over 0.5 m, 0.25 s down to 1 m/s over 0.375 m, and cruises the rest
+        assertEquals(0.5 + (3.125 / 2) + 0.25, trajectory.getTotalTime(), DELTA);
+        assertEquals(1, speed(trajectory, trajectory.length() - 1), DELTA);
+        assertEquals(1, trajectory.getVelocityX(trajectory.length() - 1), DELTA);
+    }
+
+    @Test
+    public void startsMoving() {
+        Pose2d end = new Pose2d(4, 0, new Rotation2d());
+        Trajectory trajectory = generator.generate(ORIGIN, end, 2, 0);
+
+        // Already at full speed, so it cruises 3.5 m then slows down over the last 0.5 m
+        assertEquals((3.5 / 2) + 0.5, trajectory.getTotalTime(), DELTA);
+        assertEquals(2, speed(trajectory, 0), DELTA);
+    }
+
+    @Test
+    public void unreachableEndSpeedIsLowered() {
+        // Accelerating the whole 0.125 m from rest only reaches sqrt(2 * 4 * 0.125) = 1 m/s
+        Trajectory trajectory =
+                generator.generate(ORIGIN, new Pose2d(0.125, 0, new Rotation2d()), 0, 2);
+        assertEquals(1, speed(trajectory, trajectory.length() - 1), DELTA);
+        assertEquals(0.25, trajectory.getTotalTime(), DELTA);
+    }
+
+    @Test
+    public void rotationCanTakeLonger() {
+        Pose2d end = new Pose2d(0, 0, Rotation2d.fromRadians(Math.PI / 2));
+
+        // 0.5 s up to pi rad/s over pi / 4 rad, then 0.5 s back down
+        assertEquals(1, generator.duration(ORIGIN, end, 0, 0), DELTA);
+
+        Trajectory trajectory = generator.generate(ORIGIN, end);
+        int last = trajectory.length() - 1;
+        assertEquals(1, trajectory.getTotalTime(), DELTA);
+        assertEquals(Math.PI / 2, trajectory.getHeading(last), DELTA);
+        assertEquals(0, trajectory.getAngularVelocity(last), DELTA);
+    }
+
+    @Test
+    public void endsStoppedWhenRotationTakesLonger() {
+        Pose2d end = new Pose2d(0.125, 0, Rotation2d.fromRadians(Math.PI / 2));
+        assertEquals(1, generator.duration(ORIGIN, end, 0, 2), DELTA);
+
+        // The translation is done long before the heading, so it stops and waits at the end
+        Trajectory trajectory = generator.generate(ORIGIN, end, 0, 2);
+        int waiting = (int) Math.round(0.5 / StraightLineGenerator.SAMPLE_PERIOD);
+        int last = trajectory.length() - 1;
+        assertEquals(1, trajectory.getTotalTime(), DELTA);
+        assertEquals(0.125, trajectory.getX(waiting), DELTA);
+        assertEquals(0, speed(trajectory, waiting), DELTA);
+        assertEquals(0.125, trajectory.getX(last), DELTA);
+        assertEquals(0, speed(trajectory, last), DELTA);
+    }
+}
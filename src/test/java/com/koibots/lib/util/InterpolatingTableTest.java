@@ -0,0 +1,84 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class InterpolatingTableTest {
+    private static final double DELTA = 1e-9;
+
+    private final InterpolatingTable table =
+            new InterpolatingTable(
+                    new double[] {1, 2, 4}, new double[] {10, 20, 40}, new double[] {0, -1, 1});
+
+    @Test
+    public void atKeys() {
+        assertEquals(10, table.get(1, 0), DELTA);
+        assertEquals(20, table.get(2, 0), DELTA);
+        assertEquals(40, table.get(4, 0), DELTA);
+        assertEquals(-1, table.get(2, 1), DELTA);
+    }
+
+    @Test
+    public void betweenKeys() {
+        assertEquals(15, table.get(1.5, 0), DELTA);
+        assertEquals(30, table.get(3, 0), DELTA);
+        assertEquals(0, table.get(3, 1), DELTA);
+    }
+
+    @Test
+    public void pastEdgesClamps() {
+        assertEquals(10, table.get(0, 0), DELTA);
+        assertEquals(10, table.get(-100, 0), DELTA);
+        assertEquals(40, table.get(5, 0), DELTA);
+        assertEquals(1, table.get(100, 1), DELTA);
+        assertEquals(1, table.getMinKey(), DELTA);
+        assertEquals(4, table.getMaxKey(), DELTA);
+    }
+
+    @Test
+    public void everyColumnAtOnce() {
+        double[] out = new double[2];
+        table.get(1.5, out);
+        assertArrayEquals(new double[] {15, -0.5}, out, DELTA);
+
+        table.get(10, out);
+        assertArrayEquals(new double[] {40, 1}, out, DELTA);
+    }
+
+    @Test
+    public void singleRow() {
+        InterpolatingTable single = new InterpolatingTable(new double[] {2}, new double[] {5});
+        assertEquals(5, single.get(0, 0), DELTA);
+        assertEquals(5, single.get(2, 0), DELTA);
+        assertEquals(5, single.get(3, 0), DELTA);
+    }
+
+    @Test
+    public void keepsItsOwnCopy() {
+        double[] keys = {1, 2};
+        double[] values = {10, 20};
+        InterpolatingTable copied = new InterpolatingTable(keys, values);
+        values[0] = 1000;
+        assertEquals(10, copied.get(1, 0), DELTA);
+    }
+
+    @Test
+    public void rejectsInvalidTables() {
+        assertThrows(IllegalArgumentException.class, () -> new InterpolatingTable(new double[0]));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new InterpolatingTable(new double[] {1, 1}, new double[] {0, 0}));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new InterpolatingTable(new double[] {2, 1}, new double[] {0, 0}));
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new InterpolatingTable(new double[] {1, 2}, new double[] {0}));
+    }
+}
@@ -0,0 +1,65 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.lib.util;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class PoseHistoryTest {
+    private static final double DELTA = 1e-9;
+
+    private final double[] pose = new double[3];
+
+    @Test
+    public void interpolatesBetweenSamples() {
+        PoseHistory history = new PoseHistory(4);
+        history.add(1, 0, 0, 0);
+        history.add(2, 2, 4, 1);
+
+        assertTrue(history.sample(1.5, pose));
+        assertArrayEquals(new double[] {1, 2, 0.5}, pose, DELTA);
+        assertTrue(history.sample(1, pose));
+        assertArrayEquals(new double[] {0, 0, 0}, pose, DELTA);
+    }
+
+    @Test
+    public void interpolatesHeadingTheShortWay() {
+        PoseHistory history = new PoseHistory(4);
+        history.add(0, 0, 0, Math.PI - 0.1);
+        history.add(1, 0, 0, -Math.PI + 0.1);
+
+        assertTrue(history.sample(0.5, pose));
+        assertArrayEquals(new double[] {0, 0, Math.PI}, pose, DELTA);
+    }
+
+    @Test
+    public void newerThanHistoryGetsNewest() {
+        PoseHistory history = new PoseHistory(4);
+        history.add(1, 0, 0, 0);
+        history.add(2, 3, 3, 0);
+
+        assertTrue(history.sample(5, pose));
+        assertArrayEquals(new double[] {3, 3, 0}, pose, DELTA);
+    }
+
+    @Test
+    public void olderThanHistoryFails() {
+        PoseHistory history = new PoseHistory(2);
+        assertFalse(history.sample(0, pose));
+
+        history.add(1, 1, 0, 0);
+        history.add(2, 2, 0, 0);
+        history.add(3, 3, 0, 0); // Overwrites the first sample
+
+        assertFalse(history.sample(1.5, pose));
+        assertTrue(history.sample(2.5, pose));
+        assertArrayEquals(new double[] {2.5, 0, 0}, pose, DELTA);
+
+        history.clear();
+        assertFalse(history.sample(2.5, pose));
+    }
+}
@@ -0,0 +1,43 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class AutoCompilerTest {
+    @Test
+    public void parsesTokens() {
+        assertEquals(List.of("SP", "PC", "SC"), AutoCompiler.parse("SP_PC_SC"));
+        assertEquals(List.of("SP", "LS"), AutoCompiler.parse("sp ls"));
+        assertEquals(
+                List.of("SP", "PL", "SL", "W", "SA"), AutoCompiler.parse("  SP, PL__SL ,W  sa\n"));
+    }
+
+    @Test
+    public void parsesWaits() {
+        assertEquals(List.of("W", "W2.5", "W0"), AutoCompiler.parse("W_W2.5_w0"));
+    }
+
+    @Test
+    public void emptyRoutineHasNoTokens() {
+        assertTrue(AutoCompiler.parse("").isEmpty());
+        assertTrue(AutoCompiler.parse(" _, ").isEmpty());
+    }
+
+    @Test
+    public void rejectsInvalidRoutines() {
+        IllegalArgumentException exception =
+                assertThrows(IllegalArgumentException.class, () -> AutoCompiler.parse("SP_XX"));
+        assertTrue(exception.getMessage().contains("\"XX\""));
+
+        assertThrows(IllegalArgumentException.class, () -> AutoCompiler.parse("SP_W-1"));
+        assertThrows(IllegalArgumentException.class, () -> AutoCompiler.parse("Wabc"));
+        assertThrows(IllegalArgumentException.class, () -> AutoCompiler.parse("SPPC"));
+    }
+}
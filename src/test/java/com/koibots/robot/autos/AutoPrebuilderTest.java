@@ -0,0 +1,36 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class AutoPrebuilderTest {
+    @Test
+    public void prebuildingCollectsWarmables() {
+        AutoRegistry autos = new AutoRegistry();
+        AutoCompiler compiler = new AutoCompiler();
+        autos.register("Pickup and score", () -> compiler.compile("PL_SC"));
+
+        Command auto = autos.get("Pickup and score");
+        List<AutoPrebuilder.Warmable> warmables = autos.getWarmables(auto);
+
+        // One library path into the note and one out of it to the scoring position
+        assertEquals(2, warmables.size());
+        for (AutoPrebuilder.Warmable warmable : warmables) {
+            assertInstanceOf(FollowLibraryPath.class, warmable);
+        }
+
+        assertEquals(
+                Waypoint.SCORE_CENTER.getPose(),
+                AutoPrebuilder.prebuild(warmables, Waypoint.SCORE_CENTER.getPose()));
+        for (AutoPrebuilder.Warmable warmable : warmables) {
+            warmable.warm();
+        }
+    }
+}
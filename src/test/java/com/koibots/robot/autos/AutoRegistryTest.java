@@ -0,0 +1,42 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
+import org.junit.jupiter.api.Test;
+
+public class AutoRegistryTest {
+    private String text = "SP";
+    private int builds = 0;
+
+    @Test
+    public void textAutosRebuildOnlyWhenTheTextChanges() {
+        AutoRegistry autos = new AutoRegistry();
+        autos.registerText(
+                "Text",
+                () -> text,
+                source -> {
+                    builds++;
+                    return new InstantCommand();
+                });
+
+        Command first = autos.get("Text");
+        assertSame(first, autos.get("Text"));
+        assertEquals(1, builds);
+        assertEquals("SP", autos.getSource("Text"));
+
+        text = "SC";
+        Command second = autos.get("Text");
+        assertNotSame(first, second);
+        assertSame(second, autos.get("Text"));
+        assertEquals(2, builds);
+
+        assertEquals("", autos.getSource(AutoRegistry.DEFAULT_AUTO));
+    }
+}
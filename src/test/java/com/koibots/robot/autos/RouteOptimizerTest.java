@@ -0,0 +1,65 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.autos;
+
+import static edu.wpi.first.units.Units.Seconds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.koibots.robot.Constants.AutoConstants;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+public class RouteOptimizerTest {
+    private final RouteOptimizer optimizer = new RouteOptimizer();
+
+    @Test
+    public void routesAreValidAutos() {
+        for (RouteOptimizer.Route route : optimizer.rank(Waypoint.SCORE_CENTER)) {
+            List<String> tokens = AutoCompiler.parse(route.routine);
+            assertEquals("SP", tokens.get(0));
+            assertEquals(1 + (2 * route.notes), tokens.size());
+
+            // Each note is picked up at most once
+            Set<String> pickups = new HashSet<>();
+            for (int a = 1; a < tokens.size(); a += 2) {
+                assertTrue(pickups.add(tokens.get(a)), route.routine);
+            }
+        }
+    }
+
+    @Test
+    public void routesFitInAuto() {
+        double limit = AutoConstants.AUTO_DURATION.in(Seconds);
+        double shootTime = AutoConstants.SHOOT_DURATION.in(Seconds);
+        for (RouteOptimizer.Route route : optimizer.rank(Waypoint.SCORE_LEFT)) {
+            assertTrue(route.seconds <= limit, route.toString());
+            assertTrue(route.seconds >= shootTime * (1 + route.notes), route.toString());
+        }
+    }
+
+    @Test
+    public void rankedBestFirst() {
+        List<RouteOptimizer.Route> routes = optimizer.rank(Waypoint.SCORE_RIGHT);
+        for (int a = 1; a < routes.size(); a++) {
+            assertTrue(RouteOptimizer.RANKING.compare(routes.get(a - 1), routes.get(a)) <= 0);
+        }
+        assertEquals(routes.get(0).routine, optimizer.best(Waypoint.SCORE_RIGHT).routine);
+    }
+
+    @Test
+    public void preloadIsAlwaysARoute() {
+        boolean found = false;
+        for (RouteOptimizer.Route route : optimizer.rank(Waypoint.AMP)) {
+            if (route.routine.equals("SP")) {
+                assertEquals(0, route.notes);
+                assertEquals(AutoConstants.SHOOT_DURATION.in(Seconds), route.seconds, 1e-9);
+                found = true;
+            }
+        }
+        assertTrue(found);
+    }
+}
@@ -0,0 +1,98 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.shooter;
+
+import static edu.wpi.first.units.Units.Meters;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import com.koibots.robot.Constants.AlignConstants;
+import com.koibots.robot.Constants.AutoConstants;
+import com.koibots.robot.Constants.SetpointConstants;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import org.junit.jupiter.api.Test;
+
+public class ShotCalculatorTest {
+    private static final double DELTA = 1e-6;
+    private static final double SPEAKER_X = AlignConstants.SPEAKER_POSITION.getX();
+    private static final double SPEAKER_Y = AlignConstants.SPEAKER_POSITION.getY();
+    private static final double MEASURED_DISTANCE = SetpointConstants.SHOT_TABLE_DISTANCES[0];
+
+    @Test
+    public void stoppedInFrontOfSpeaker() {
+        ShotCalculator shot = new ShotCalculator();
+        shot.update(new Pose2d(SPEAKER_X + MEASURED_DISTANCE, SPEAKER_Y, new Rotation2d()));
+
+        assertEquals(MEASURED_DISTANCE, shot.getDistance(), DELTA);
+        assertEquals(0, shot.getHeading(), DELTA);
+        assertEquals(0, shot.getHeadingRate(), DELTA);
+        assertEquals(SetpointConstants.SHOT_TABLE_TOP_SPEEDS[0], shot.getTopSpeed(), DELTA);
+        assertEquals(SetpointConstants.SHOT_TABLE_BOTTOM_SPEEDS[0], shot.getBottomSpeed(), DELTA);
+        assertTrue(shot.inRange());
+    }
+
+    @Test
+    public void estimatedRowsAreOutOfRange() {
+        assumeFalse(SetpointConstants.USE_ESTIMATED_SHOT_ROWS);
+
+        // Past the measured rows, so the table doesn't cover the shot
+        ShotCalculator shot = new ShotCalculator();
+        double distance =
+                SetpointConstants.SHOT_TABLE_DISTANCES[SetpointConstants.MEASURED_SHOT_ROWS];
+        shot.update(new Pose2d(SPEAKER_X + distance, SPEAKER_Y, new Rotation2d()));
+        assertFalse(shot.inRange());
+    }
+
+    @Test
+    public void redAlliancePoseIsAllianceRelative() {
+        // On red the estimator measures from the red alliance wall, so a robot in front of the red
+        // speaker gets the same pose, and the same shot, as on blue
+        ShotCalculator shot = new ShotCalculator();
+        shot.update(
+                new Pose2d(SPEAKER_X + MEASURED_DISTANCE, SPEAKER_Y, new Rotation2d(Math.PI)));
+
+        assertEquals(MEASURED_DISTANCE, shot.getDistance(), DELTA);
+        assertEquals(0, shot.getHeading(), DELTA);
+        assertTrue(shot.inRange());
+
+        // Where the speaker would be if the pose were mirrored onto the far side of the field
+        shot.update(
+                new Pose2d(
+                        AutoConstants.FIELD_LENGTH.in(Meters) - SPEAKER_X - MEASURED_DISTANCE,
+                        SPEAKER_Y,
+                        new Rotation2d()));
+        assertFalse(shot.inRange());
+    }
+
+    @Test
+    public void leadsShotWhenDrivingSideways() {
+        ShotCalculator shot = new ShotCalculator();
+        // Facing away from the speaker, so driving robot relative left is driving field relative +y
+        shot.update(
+                new Pose2d(SPEAKER_X + 3, SPEAKER_Y, new Rotation2d()), new ChassisSpeeds(0, 1, 0));
+
+        // The note keeps the robot's velocity, so it's aimed behind the speaker
+        assertEquals(SPEAKER_X, shot.getTargetX(), DELTA);
+        assertEquals(SPEAKER_Y - shot.getFlightTime(), shot.getTargetY(), 1e-2);
+        assertTrue(shot.getHeading() > 0);
+        assertTrue(shot.getHeadingRate() > 0);
+    }
+
+    @Test
+    public void closingSpeedWhenDrivingAtSpeaker() {
+        ShotCalculator shot = new ShotCalculator();
+        // The shooter faces away from the speaker, so driving at it is driving backwards
+        shot.update(
+                new Pose2d(SPEAKER_X + 3, SPEAKER_Y, new Rotation2d()),
+                new ChassisSpeeds(-1, 0, 0));
+
+        assertEquals(1, shot.getClosingSpeed(), DELTA);
+        assertEquals(0, shot.getHeadingRate(), DELTA);
+        assertTrue(shot.getDistance() < 3);
+    }
+}
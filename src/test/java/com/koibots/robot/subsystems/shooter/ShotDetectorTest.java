@@ -0,0 +1,40 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.shooter;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class ShotDetectorTest {
+    private final ShotDetector detector = new ShotDetector(0.05, 20);
+
+    @Test
+    public void stillSpinningUpIsNotAShot() {
+        // Fed at 3500 RPM on the way to 3850, with the current falling off as it catches up
+        detector.start(3500, 3500, 25, 25);
+
+        assertFalse(detector.noteDetected(3600, 3600, 20, 20));
+        assertFalse(detector.noteDetected(3750, 3750, 12, 12));
+        assertFalse(detector.noteDetected(3850, 3850, 6, 6));
+    }
+
+    @Test
+    public void dipFromStartingSpeedIsAShot() {
+        detector.start(3850, 3850, 6, 6);
+        assertFalse(detector.noteDetected(3800, 3850, 6, 6));
+
+        assertTrue(detector.noteDetected(3600, 3850, 6, 6));
+        assertTrue(detector.noteDetected(3850, 3600, 6, 6));
+    }
+
+    @Test
+    public void currentSpikeIsAShot() {
+        detector.start(3850, 3850, 6, 6);
+
+        assertTrue(detector.noteDetected(3850, 3850, 30, 6));
+        assertTrue(detector.noteDetected(3850, 3850, 6, 30));
+    }
+}
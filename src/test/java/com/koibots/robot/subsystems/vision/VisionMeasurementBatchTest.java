@@ -0,0 +1,76 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.vision;
+
+import static com.koibots.robot.subsystems.vision.VisionMeasurementQueue.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.wpi.first.math.MathUtil;
+import org.junit.jupiter.api.Test;
+
+public class VisionMeasurementBatchTest {
+    private static final double DELTA = 1e-9;
+
+    private final VisionMeasurementBatch batch = new VisionMeasurementBatch(4, 0.005);
+
+    private static double[] measurement(
+            double x, double y, double theta, double timestamp, double xStdDev) {
+        return new double[] {x, y, theta, timestamp, xStdDev, 1, 1};
+    }
+
+    @Test
+    public void weightsByInverseVariance() {
+        batch.add(measurement(0, 2, 0, 1.000, 1));
+        batch.add(measurement(5, 4, 0, 1.002, 2));
+
+        assertEquals(1, batch.fuse());
+        double[] fused = batch.get(0);
+
+        // Weights of 1 and 1/4 on x, equal weights on y
+        assertEquals(1, fused[X], DELTA);
+        assertEquals(Math.sqrt(1 / 1.25), fused[X_STD_DEV], DELTA);
+        assertEquals(3, fused[Y], DELTA);
+        assertEquals(Math.sqrt(0.5), fused[Y_STD_DEV], DELTA);
+        assertEquals(1.001, fused[TIMESTAMP], DELTA);
+    }
+
+    @Test
+    public void headingWrapsAround() {
+        batch.add(measurement(0, 0, Math.PI - 0.1, 1, 1));
+        batch.add(measurement(0, 0, -Math.PI + 0.1, 1, 1));
+
+        assertEquals(1, batch.fuse());
+        // Averaging the raw angles would give 0, facing the other way
+        assertEquals(0, MathUtil.angleModulus(batch.get(0)[THETA] - Math.PI), DELTA);
+    }
+
+    @Test
+    public void separateCapturesStaySeparate() {
+        batch.add(measurement(2, 0, 0, 1.1, 1));
+        batch.add(measurement(1, 0, 0, 1.0, 1));
+        batch.add(measurement(3, 0, 0, 1.101, 1));
+
+        // Sorted oldest first, with the two at 1.1 fused
+        assertEquals(2, batch.fuse());
+        assertEquals(1, batch.get(0)[X], DELTA);
+        assertEquals(1.0, batch.get(0)[TIMESTAMP], DELTA);
+        assertEquals(2.5, batch.get(1)[X], DELTA);
+        assertEquals(1.1005, batch.get(1)[TIMESTAMP], DELTA);
+    }
+
+    @Test
+    public void ignoresMeasurementsWhenFull() {
+        for (int a = 0; a < 4; a++) {
+            assertTrue(batch.add(measurement(a, 0, 0, a, 1)));
+        }
+        assertFalse(batch.add(measurement(4, 0, 0, 4, 1)));
+        assertEquals(4, batch.fuse());
+
+        batch.clear();
+        assertEquals(0, batch.fuse());
+        assertTrue(batch.add(measurement(0, 0, 0, 0, 1)));
+    }
+}
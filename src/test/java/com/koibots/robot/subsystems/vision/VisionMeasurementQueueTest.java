@@ -0,0 +1,74 @@
+// Copyright (c) 2024 FRC 8230 - The KoiBots
+// https://github.com/koibots8230
+
+package com.koibots.robot.subsystems.vision;
+
+import static com.koibots.robot.subsystems.vision.VisionMeasurementQueue.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class VisionMeasurementQueueTest {
+    private final VisionMeasurementQueue queue = new VisionMeasurementQueue(3);
+    private final double[] out = new double[FIELDS];
+
+    private boolean offer(double timestamp) {
+        return queue.offer(1, 2, 3, timestamp, 4, 5, 6);
+    }
+
+    @Test
+    public void emptyQueueHasNothingToPoll() {
+        assertFalse(queue.poll(out));
+
+        assertTrue(offer(1));
+        assertTrue(queue.poll(out));
+        assertFalse(queue.poll(out));
+    }
+
+    @Test
+    public void pollsEveryField() {
+        assertTrue(offer(7));
+        assertTrue(queue.poll(out));
+        assertArrayEquals(new double[] {1, 2, 3, 7, 4, 5, 6}, out);
+    }
+
+    @Test
+    public void dropsMeasurementsWhenFull() {
+        assertTrue(offer(1));
+        assertTrue(offer(2));
+        assertTrue(offer(3));
+        assertFalse(offer(4));
+
+        // The dropped measurement never shows up
+        for (int a = 1; a <= 3; a++) {
+            assertTrue(queue.poll(out));
+            assertEquals(a, out[TIMESTAMP]);
+        }
+        assertFalse(queue.poll(out));
+    }
+
+    @Test
+    public void staysInOrderAcrossWrapAround() {
+        int polled = 0;
+        for (int a = 0; a < 10; a++) {
+            assertTrue(offer(a));
+            if (a % 2 == 1) {
+                // Two in, one out, draining whenever it fills
+                assertTrue(queue.poll(out));
+                assertEquals(polled++, out[TIMESTAMP]);
+            }
+            if (a % 3 == 2) {
+                while (queue.poll(out)) {
+                    assertEquals(polled++, out[TIMESTAMP]);
+                }
+            }
+        }
+        while (queue.poll(out)) {
+            assertEquals(polled++, out[TIMESTAMP]);
+        }
+        assertEquals(10, polled);
+    }
+}